@@ -0,0 +1,112 @@
+package lasers.benchmarks;
+
+import lasers.model.LasersModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the operations the views call on LasersModel.  add and
+ * remove change the board, so they work on a copy that is put back before
+ * every call; each call places (or takes off) every laser of a solution,
+ * so a single call is not too short to time.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LasersModelBenchmark {
+
+    /**
+     * The model with the board as the file has it, put back before every call.
+     */
+    @State(Scope.Thread)
+    public static class EmptyBoard {
+        LasersModel model;
+
+        @Setup(Level.Invocation)
+        public void reset(SafeBoards safe) {
+            model = safe.model;
+            model.setBoard(SafeBoards.copy(safe.empty));
+        }
+    }
+
+    /**
+     * The model with a solution on the board, put back before every call.
+     */
+    @State(Scope.Thread)
+    public static class SolvedBoard {
+        LasersModel model;
+
+        @Setup(Level.Invocation)
+        public void reset(SafeBoards safe) {
+            model = safe.model;
+            model.setBoard(SafeBoards.copy(safe.solved));
+        }
+    }
+
+    @Benchmark
+    public String[][] add(EmptyBoard board, SafeBoards safe) {
+        for (int[] laser : safe.lasers) {
+            board.model.add(laser[0], laser[1]);
+        }
+        return board.model.getBoard();
+    }
+
+    @Benchmark
+    public String[][] remove(SolvedBoard board, SafeBoards safe) {
+        for (int[] laser : safe.lasers) {
+            board.model.remove(laser[0], laser[1]);
+        }
+        return board.model.getBoard();
+    }
+
+    @Benchmark
+    public String[][] refreshBoard(SolvedBoard board) {
+        board.model.refreshBoard();
+        return board.model.getBoard();
+    }
+
+    @Benchmark
+    public boolean verify(SafeBoards safe) {
+        safe.model.setBoard(safe.solved);
+        return safe.model.verify();
+    }
+
+    @Benchmark
+    public int laserChecker(SafeBoards safe) {
+        LasersModel model = safe.model;
+        model.setBoard(safe.solved);
+        int passed = 0;
+        for (int row = 0; row < model.getROW_DIM(); row++) {
+            for (int col = 0; col < model.getCOLUMN_DIM(); col++) {
+                if (model.laserChecker(row, col)) {
+                    passed++;
+                }
+            }
+        }
+        return passed;
+    }
+
+    @Benchmark
+    public LasersModel createBoard(SafeBoards safe) throws FileNotFoundException {
+        LasersModel model = new LasersModel(safe.filename);
+        model.createBoard();
+        return model;
+    }
+}
@@ -0,0 +1,86 @@
+package lasers.benchmarks;
+
+import lasers.backtracking.Configuration;
+import lasers.backtracking.IterativeBacktracker;
+import lasers.backtracking.SafeConfig;
+import lasers.model.LasersModel;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One safe of src/tests for a benchmark, with the board as the file has
+ * it and a solution of it.  The paths are relative to the root of the
+ * repository, so the benchmarks have to be started from there.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+@State(Scope.Thread)
+public class SafeBoards {
+    /** every safe in src/tests (the -input files are PTUI scripts) */
+    @Param({
+            "src/tests/4x4safe.txt",
+            "src/tests/7x7safe.txt",
+            "src/tests/8x8safe.txt",
+            "src/tests/10x8safe.txt",
+            "src/tests/10x18safe-easy.txt",
+            "src/tests/10x18safe-medium.txt",
+            "src/tests/14x14safe.txt",
+            "src/tests/14x24safe-medium.txt",
+            "src/tests/14x24safe-hard.txt",
+            "src/tests/20x36safe-easy.txt",
+            "src/tests/20x36safe-medium.txt",
+            "src/tests/20x36safe-hard.txt"
+    })
+    public String filename;
+
+    /** the board as read from the file */
+    String[][] empty;
+    /** a solution of the board */
+    String[][] solved;
+    /** rows and columns of the lasers of the solution */
+    int[][] lasers;
+    /** the model the benchmarks work on */
+    LasersModel model;
+
+    @Setup
+    public void load() throws FileNotFoundException {
+        model = new LasersModel(filename);
+        model.createBoard();
+        empty = copy(model.getBoard());
+
+        Optional<Configuration> sol = new IterativeBacktracker(false).solve(new SafeConfig(filename));
+        if (!sol.isPresent()) {
+            throw new IllegalStateException(filename + " has no solution");
+        }
+        solved = ((SafeConfig) sol.get()).getBoard();
+        List<int[]> found = new ArrayList<>();
+        for (int row = 0; row < solved.length; row++) {
+            for (int col = 0; col < solved[row].length; col++) {
+                if (solved[row][col].equals("L")) {
+                    found.add(new int[]{row, col});
+                }
+            }
+        }
+        lasers = found.toArray(new int[0][]);
+    }
+
+    /**
+     * @param board: a board
+     * @return: a copy of the board the model can change
+     */
+    static String[][] copy(String[][] board) {
+        String[][] copy = new String[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,78 @@
+package lasers.benchmarks;
+
+import lasers.backtracking.Configuration;
+import lasers.backtracking.IterativeBacktracker;
+import lasers.backtracking.SafeConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the two SafeConfig methods the backtracker calls at every
+ * node.  They run on the configurations along the path the backtracker
+ * takes to a solution, so the boards look like the ones a real search
+ * sees; safes that propagation solves at the root have no such path and
+ * do nothing.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SafeConfigBenchmark {
+
+    /**
+     * The configurations on the path to a solution, without the goal, and
+     * all of their successors.
+     */
+    @State(Scope.Thread)
+    public static class SearchPath {
+        List<Configuration> path;
+        List<Configuration> successors;
+
+        @Setup
+        public void load(SafeBoards safe) throws FileNotFoundException {
+            path = new IterativeBacktracker(false).solveWithPath(new SafeConfig(safe.filename));
+            path.remove(path.size() - 1);
+            successors = new ArrayList<>();
+            for (Configuration config : path) {
+                successors.addAll(config.getSuccessors());
+            }
+        }
+    }
+
+    @Benchmark
+    public int getSuccessors(SearchPath search) {
+        int count = 0;
+        for (Configuration config : search.path) {
+            count += config.getSuccessors().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int isValid(SearchPath search) {
+        int valid = 0;
+        for (Configuration config : search.successors) {
+            if (config.isValid()) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
@@ -6,6 +6,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 
 import lasers.gui.LasersGUI;
+import lasers.model.SafeFormatException;
 import lasers.ptui.ControllerPTUI;
 import lasers.ptui.LasersPTUI;
 
@@ -15,9 +16,10 @@ import lasers.ptui.LasersPTUI;
  * It is run on the command line as follows:<br>
  * <br>
  * 1. Plain text UI mode: <br>
- *     java Lasers ptui safe-file [input]<br>
+ *     java Lasers ptui safe-file [input [replay]]<br>
  * <br>
- * Here, the input file of commands from the file is optional<br>
+ * Here, the input file of commands from the file is optional; with
+ * replay only the safe the input file ends with is displayed<br>
  * <br>
  * 2. JavaFX GUI mode:<br>
  *     java Lasers gui safe-file<br>
@@ -32,7 +34,7 @@ public class Lasers {
      * Displays the usage message and exits the program.
      */
     private static void usage() {
-        System.err.println("Usage: java Lasers (gui | ptui) safe-file [input]");
+        System.err.println("Usage: java Lasers (gui | ptui) safe-file [input [replay]]");
         System.exit(-1);
     }
 
@@ -47,9 +49,15 @@ public class Lasers {
         UIMode mode = UIMode.UNKNOWN;
         String safeFile = null;
         String inputFile = null;
+        boolean replay = false;
         switch (args.length) {
+            case 4:
             case 3:
                 inputFile = args[2];
+                replay = args.length == 4;
+                if (replay && !args[3].equals("replay")) {
+                    usage();
+                }
             case 2:
                 safeFile = args[1];
                 try {
@@ -75,13 +83,13 @@ public class Lasers {
                     // now create the "controller"
                     ControllerPTUI ctrlr = new ControllerPTUI(ptui.getModel());
                     // now pass control to the run method of the controller
-                    ctrlr.run(inputFile);
+                    ctrlr.run(inputFile, replay);
                     break;
                 case UNKNOWN:
                     usage();
             }
-        } catch (FileNotFoundException fnfe) {
-            System.out.println(fnfe.getMessage());
+        } catch (FileNotFoundException | SafeFormatException e) {
+            System.out.println(e.getMessage());
             System.exit(-1);
         }
     }
@@ -1,6 +1,8 @@
 package lasers.backtracking;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class represents the classic recursive backtracking algorithm.
@@ -17,6 +19,40 @@ import java.util.*;
  */
 public class Backtracker {
     private boolean debug;
+    /** moves of every level of an in place search, MutableConfiguration only */
+    private int[] moveStack;
+    /** dead ends already searched, or null to search without one */
+    private TranspositionTable table;
+    /** counters of the last solve */
+    private volatile SolverStats stats = new SolverStats();
+    /** nodes the last solve visited so far, which any thread may read */
+    private final LongAdder progress = new LongAdder();
+    /** set once the backtracker is cancelled */
+    private volatile boolean cancelled;
+
+    /** cancellation token of the solve in progress, or null */
+    private CancellationToken token;
+    /** deadline of the solve in progress, Long.MAX_VALUE if it has none */
+    private long deadline;
+    /** nodes the solve in progress may still expand, if it has a budget */
+    private final AtomicLong nodesLeft = new AtomicLong();
+    private boolean budgeted;
+    /**
+     * calls to shouldStop(), to look at the clock only now and then; only
+     * the engines that search on one thread use it
+     */
+    private int checks;
+    /** why the solve in progress stopped early, or null */
+    private volatile SolveResult.Status stopped;
+    /** number of solutions a SolutionCount keeps */
+    protected static final int KEPT_SOLUTIONS = 2;
+
+    /** solutions the count in progress stops at */
+    private long countLimit;
+    /** solutions the count in progress has found */
+    private long counted;
+    /** first solutions the count in progress has found */
+    private List<Configuration> firstSolutions;
 
     /**
      * Initialize a new backtracker.
@@ -37,12 +73,195 @@ public class Backtracker {
      *               successor, e.g.)
      * @param config The config to display
      */
-    private void debugPrint(String msg, Configuration config) {
+    protected void debugPrint(String msg, Object config) {
         if (this.debug) {
             System.out.println(msg + ":\n" + config);
         }
     }
 
+    /**
+     * Remember dead ends in a transposition table, so that configurations
+     * reached again in a different order are not searched twice.  Only
+     * configurations that implement HashedConfiguration are looked up.
+     *
+     * @param table the table, or null to stop using one
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * @return the transposition table, or null
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * The counters are written by the threads of the solve without any
+     * synchronization, so only read them once the solve is over; use
+     * getProgress to follow a solve in progress.
+     *
+     * @return the counters of the last solve, or of the one in progress
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the number of nodes the last solve, or the one in progress,
+     * has visited so far; safe to call from any thread while it runs
+     */
+    public long getProgress() {
+        return progress.sum();
+    }
+
+    /**
+     * Count a node in the counters of the solve and in its progress.
+     *
+     * @param stats the counters of the thread visiting the node
+     * @param depth depth of the node
+     */
+    protected void visit(SolverStats stats, int depth) {
+        stats.visit(depth);
+        progress.increment();
+    }
+
+    /**
+     * Stop the solve in progress.  A cancelled backtracker stays cancelled:
+     * the solve in progress, and any later one, returns as if there was no
+     * solution, so use a new backtracker for the next search.  Dead ends
+     * are not stored in the transposition table once it is cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if cancel was called, so an empty result may just mean
+     * the search was stopped
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Start new counters and the limits of a solve.
+     *
+     * @param options the limits of the solve
+     * @param parallel whether the solve runs on several threads
+     * @return the counters
+     */
+    protected SolverStats begin(SolveOptions options, boolean parallel) {
+        SolverStats fresh = new SolverStats();
+        fresh.start(parallel);
+        stats = fresh;
+        progress.reset();
+        token = options.getCancellationToken();
+        deadline = options.getDeadline(System.nanoTime());
+        budgeted = options.getNodeBudget() != Long.MAX_VALUE;
+        nodesLeft.set(options.getNodeBudget());
+        checks = 0;
+        stopped = null;
+        return fresh;
+    }
+
+    /**
+     * Stop the clocks and say how the solve ended.
+     *
+     * @param solution the solution found, or null
+     * @return the result of the solve
+     */
+    protected SolveResult finish(Configuration solution) {
+        stats.stop();
+        SolveResult.Status status = SolveResult.Status.FOUND;
+        if (solution == null) {
+            status = getStopReason() != null ? getStopReason() : SolveResult.Status.NONE;
+        }
+        return new SolveResult(status, solution, stats);
+    }
+
+    /**
+     * @return BUDGET or CANCELLED if the solve in progress was stopped
+     * early, or null
+     */
+    protected SolveResult.Status getStopReason() {
+        if (stopped != null) {
+            return stopped;
+        }
+        return cancelled ? SolveResult.Status.CANCELLED : null;
+    }
+
+    /**
+     * Should the search stop before the next node?  The engines that
+     * search on one thread call this once per node: it reads a few fields,
+     * counts the node against the budget if there is one and only looks at
+     * the clock every 256 calls, starting with the first.  The calls are
+     * counted in a plain field of the backtracker, so an engine that
+     * searches on several threads calls shouldStop(int) instead.
+     * Once it returns true it keeps doing so until the next solve.
+     *
+     * @return true if the solve was cancelled or ran out of budget
+     */
+    protected boolean shouldStop() {
+        return shouldStop(checks++);
+    }
+
+    /**
+     * shouldStop() for a search on several threads, where every task counts
+     * its own calls so that the threads don't share a counter.  The clock
+     * is looked at when check is a multiple of 256.
+     *
+     * @param check number of calls the task made before this one
+     * @return true if the solve was cancelled or ran out of budget
+     */
+    protected boolean shouldStop(int check) {
+        if (stopped != null) {
+            return true;
+        }
+        if (cancelled || (token != null && token.isCancelled())) {
+            stopped = SolveResult.Status.CANCELLED;
+        } else if (budgeted && nodesLeft.decrementAndGet() < 0) {
+            stopped = SolveResult.Status.BUDGET;
+        } else if ((check & 255) == 0 && deadline != Long.MAX_VALUE
+                && System.nanoTime() - deadline > 0) {
+            stopped = SolveResult.Status.BUDGET;
+        }
+        return stopped != null;
+    }
+
+    /**
+     * @return true if the solve in progress stopped early, so the subtrees
+     * it left were not searched to the end
+     */
+    protected boolean isStopped() {
+        return stopped != null;
+    }
+
+    /**
+     * Is the configuration a dead end already stored in the transposition
+     * table?
+     *
+     * @param config the configuration
+     * @return true if its subtree is known to have no goal
+     */
+    protected boolean isKnownDead(Object config) {
+        return table != null && config instanceof HashedConfiguration
+                && table.isDead(((HashedConfiguration) config).getHash());
+    }
+
+    /**
+     * Store a configuration whose whole subtree was searched without
+     * finding a goal in the transposition table.
+     *
+     * @param config the configuration
+     */
+    protected void markDead(Object config) {
+        if (table != null && config instanceof HashedConfiguration) {
+            table.markDead(((HashedConfiguration) config).getHash());
+        }
+    }
+
     /**
      * Try find a solution, if one exists, for a given configuration.
      *
@@ -50,50 +269,266 @@ public class Backtracker {
      * @return A solution config, or Optional.empty() if no solution
      */
     public Optional<Configuration> solve(Configuration config) {
+        return solve(config, new SolveOptions()).getSolution();
+    }
+
+    /**
+     * Try find a solution, within some limits, for a given configuration.
+     *
+     * @param config A valid configuration
+     * @param options the limits of the search
+     * @return the solution, or why there is none
+     */
+    public SolveResult solve(Configuration config, SolveOptions options) {
+        begin(options, false);
+        return finish(solve(config, 0).orElse(null));
+    }
+
+    /**
+     * the search below one configuration
+     *
+     * @param config the configuration
+     * @param depth depth of the configuration in the tree
+     * @return A solution config, or Optional.empty() if no solution
+     */
+    private Optional<Configuration> solve(Configuration config, int depth) {
+        if (shouldStop()) {
+            return Optional.empty();
+        }
         debugPrint("Current config", config);
+        visit(stats, depth);
         if (config.isGoal()) {
             debugPrint("\tGoal config", config);
             return Optional.of(config);
+        } else if (isKnownDead(config)) {
+            debugPrint("\tKnown dead end", config);
         } else {
-            for (Configuration child : config.getSuccessors()) {
+            Collection<Configuration> children = config.getSuccessors();
+            stats.expand(depth, children.size());
+            for (Configuration child : children) {
                 if (child.isValid()) {
                     debugPrint("\tValid successor", child);
-                    Optional<Configuration> sol = solve(child);
+                    Optional<Configuration> sol = solve(child, depth + 1);
                     if (sol.isPresent()) {
                         return sol;
                     }
                 } else {
                     debugPrint("\tInvalid successor", child);
+                    stats.reject(depth);
                 }
             }
             // implicit backtracking happens here
+            if (!isStopped()) {
+                markDead(config);
+            }
         }
         return Optional.empty();
     }
 
+    /**
+     * Try find a solution, if one exists, by changing a single
+     * configuration in place.  Each move is made before its successor is
+     * searched and taken back when the search backtracks, so nothing is
+     * allocated per node.
+     *
+     * @param config A valid configuration, left at the goal if one is found
+     * @return A copy of the solution config, or Optional.empty() if no solution
+     */
+    public Optional<Configuration> solve(MutableConfiguration config) {
+        return solve(config, new SolveOptions()).getSolution();
+    }
+
+    /**
+     * Try find a solution, within some limits, by changing a single
+     * configuration in place.
+     *
+     * @param config A valid configuration, left at the goal if one is found
+     * @param options the limits of the search
+     * @return a copy of the solution, or why there is none
+     */
+    public SolveResult solve(MutableConfiguration config, SolveOptions options) {
+        begin(options, false);
+        moveStack = new int[config.getMaxMoves() * 64];
+        boolean found = solve(config, 0, 0);
+        moveStack = null;
+        return finish(found ? config.snapshot() : null);
+    }
+
+    /**
+     * the in place search below one configuration
+     *
+     * @param config the configuration, changed in place
+     * @param top first free index of the move stack
+     * @param depth depth of the configuration in the tree
+     * @return true if config was left at a goal
+     */
+    private boolean solve(MutableConfiguration config, int top, int depth) {
+        if (shouldStop()) {
+            return false;
+        }
+        debugPrint("Current config", config);
+        visit(stats, depth);
+        if (config.isGoal()) {
+            debugPrint("\tGoal config", config);
+            return true;
+        }
+        if (isKnownDead(config)) {
+            debugPrint("\tKnown dead end", config);
+            return false;
+        }
+        if (top + config.getMaxMoves() > moveStack.length) {
+            moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+        }
+        int count = config.getMoves(moveStack, top);
+        stats.expand(depth, count);
+        for (int i = top; i < top + count; i++) {
+            config.makeMove(moveStack[i]);
+            if (config.isValid()) {
+                debugPrint("\tValid successor", config);
+                if (solve(config, top + count, depth + 1)) {
+                    return true;
+                }
+            } else {
+                debugPrint("\tInvalid successor", config);
+                stats.reject(depth);
+            }
+            config.unmakeMove();
+        }
+        if (!isStopped()) {
+            markDead(config);
+        }
+        return false;
+    }
+
+    /**
+     * Count the solutions of a configuration, up to a limit.  With a limit
+     * of 2 the count tells whether the solution is unique.
+     *
+     * @param config A valid configuration
+     * @param limit number of solutions to stop at, Long.MAX_VALUE to find
+     *              them all
+     * @return how many solutions there are
+     */
+    public SolutionCount countSolutions(Configuration config, long limit) {
+        return countSolutions(config, limit, new SolveOptions());
+    }
+
+    /**
+     * Count the solutions of a configuration, up to a limit and within
+     * the limits of the options.
+     *
+     * @param config A valid configuration
+     * @param limit number of solutions to stop at, Long.MAX_VALUE to find
+     *              them all
+     * @param options the limits of the search
+     * @return how many solutions were found, and whether that is all
+     */
+    public SolutionCount countSolutions(Configuration config, long limit, SolveOptions options) {
+        begin(options, false);
+        countLimit = limit;
+        counted = 0;
+        firstSolutions = new ArrayList<>();
+        count(config, 0);
+        stats.stop();
+        SolutionCount result = new SolutionCount(counted, counted >= limit, getStopReason(),
+                firstSolutions, stats);
+        firstSolutions = null;
+        return result;
+    }
+
+    /**
+     * the count below one configuration
+     *
+     * @param config the configuration
+     * @param depth depth of the configuration in the tree
+     * @return number of solutions found below it
+     */
+    private long count(Configuration config, int depth) {
+        if (shouldStop()) {
+            return 0;
+        }
+        debugPrint("Current config", config);
+        visit(stats, depth);
+        if (config.isGoal()) {
+            debugPrint("\tGoal config", config);
+            if (firstSolutions.size() < KEPT_SOLUTIONS) {
+                firstSolutions.add(config);
+            }
+            counted++;
+            return 1;
+        } else if (isKnownDead(config)) {
+            debugPrint("\tKnown dead end", config);
+            return 0;
+        }
+        long found = 0;
+        Collection<Configuration> children = config.getSuccessors();
+        stats.expand(depth, children.size());
+        for (Configuration child : children) {
+            if (counted >= countLimit) {
+                break;
+            }
+            if (child.isValid()) {
+                debugPrint("\tValid successor", child);
+                found += count(child, depth + 1);
+            } else {
+                debugPrint("\tInvalid successor", child);
+                stats.reject(depth);
+            }
+        }
+        if (found == 0 && !isStopped()) {
+            markDead(config);
+        }
+        return found;
+    }
+
     /**
      * Find a goal configuration if it exists, and how to get there.
      *
      * @param current the starting configuration
-     * @return a list of configurations to get to a goal configuration.
+     * @return a list of configurations from current to a goal configuration.
      * If there are none, return null.
      */
     public List<Configuration> solveWithPath(Configuration current) {
+        begin(new SolveOptions(), false);
+        List<Configuration> path = solveWithPath(current, 0);
+        stats.stop();
+        return path;
+    }
+
+    /**
+     * the search for a path below one configuration
+     *
+     * @param current the configuration
+     * @param depth depth of the configuration in the tree
+     * @return the configurations from current to a goal, or null
+     */
+    private List<Configuration> solveWithPath(Configuration current, int depth) {
+        if (shouldStop()) {
+            return null;
+        }
+        visit(stats, depth);
         List<Configuration> path = null;
         if (current.isGoal()) {
             path = new LinkedList<>();
             path.add(current);
             return path;
-        } else {
-            for (Configuration child : current.getSuccessors()) {
+        } else if (!isKnownDead(current)) {
+            Collection<Configuration> children = current.getSuccessors();
+            stats.expand(depth, children.size());
+            for (Configuration child : children) {
                 if (child.isValid()) {
-                    path = solveWithPath(child);
+                    path = solveWithPath(child, depth + 1);
                     if (path != null){
-                        path.add(0, child);
+                        path.add(0, current);
                         return path;
                     }
+                } else {
+                    stats.reject(depth);
                 }
             }
+            if (!isStopped()) {
+                markDead(current);
+            }
         }
         return null;
     }
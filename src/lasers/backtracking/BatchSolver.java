@@ -0,0 +1,249 @@
+package lasers.backtracking;
+
+import lasers.model.SafeCorpus;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This is the main class for solving many safes in one JVM.  The first
+ * argument is a directory, whose files are all solved, a glob such as
+ * "src/tests/*safe{,-easy,-medium,-hard}.txt", or a SafeCorpus file
+ * ending in .corpus whose safes are all solved.  The safes are solved
+ * on a fixed number of threads, one safe per thread at a time, and
+ * every solve has a time limit so a single hard safe can't hold up the
+ * batch.  One line per safe, in the order of the file names, is printed
+ * as CSV (the default) or as a JSON object, and a summary goes to
+ * standard error at the end.
+ *
+ * Usage: java BatchSolver dir-or-glob-or-corpus [threads] [timeout-ms] [csv|json]
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class BatchSolver {
+    /** time limit of a solve unless told otherwise */
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+
+    /** status of a safe that could not be read */
+    private static final String ERROR = "ERROR";
+
+    /**
+     * Reads the safe a task solves, on the thread of the task.
+     */
+    private interface SafeReader {
+        MutableConfiguration read() throws IOException;
+    }
+
+    /**
+     * How the solve of one safe went.
+     */
+    private static class Outcome {
+        private final String file;
+        private final String status;
+        private final double millis;
+        private final long nodes;
+        private final String error;
+
+        /**
+         * @param file the safe file
+         * @param status a SolveResult status, or ERROR
+         * @param millis wall clock time of reading and solving the safe
+         * @param nodes nodes the search expanded
+         * @param error why the safe could not be read, or null
+         */
+        Outcome(String file, String status, double millis, long nodes, String error) {
+            this.file = file;
+            this.status = status;
+            this.millis = millis;
+            this.nodes = nodes;
+            this.error = error;
+        }
+
+        /**
+         * @return: the outcome as a CSV line
+         */
+        String toCsv() {
+            return quoteCsv(file) + "," + status + "," + String.format("%.3f", millis) + ","
+                    + nodes + "," + (error == null ? "" : quoteCsv(error));
+        }
+
+        /**
+         * @return: the outcome as a JSON object on a single line
+         */
+        String toJson() {
+            return "{\"file\":" + quoteJson(file) + ",\"status\":\"" + status + "\""
+                    + ",\"millis\":" + String.format("%.3f", millis) + ",\"nodes\":" + nodes
+                    + (error == null ? "" : ",\"error\":" + quoteJson(error)) + "}";
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 4) {
+            System.out.println("Usage: java BatchSolver dir-or-glob-or-corpus [threads] [timeout-ms] [csv|json]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        long timeout = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TIMEOUT_MS;
+        boolean json = args.length > 3 && args[3].equals("json");
+
+        // the name of every safe, and how to read it
+        List<String> names = new ArrayList<>();
+        List<SafeReader> readers = new ArrayList<>();
+        if (args[0].endsWith(".corpus")) {
+            SafeCorpus corpus = new SafeCorpus(Paths.get(args[0]));
+            for (int n = 0; n < corpus.size(); n++) {
+                int index = n;
+                names.add(args[0] + "#" + n);
+                readers.add(() -> new MutableSafeConfig(corpus.getBoard(index), new MostConstrainedBranching()));
+            }
+        } else {
+            for (Path file : findSafes(args[0])) {
+                names.add(file.toString());
+                readers.add(() -> new MutableSafeConfig(file.toString()));
+            }
+        }
+        if (names.isEmpty()) {
+            System.err.println("No safe files match " + args[0]);
+            return;
+        }
+
+        // start the clock
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Outcome>> outcomes = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            SafeReader reader = readers.get(i);
+            outcomes.add(pool.submit(() -> solve(name, reader, timeout)));
+        }
+        pool.shutdown();
+
+        // print the lines in order, each as soon as its safe is done
+        Map<SolveResult.Status, Integer> counts = new EnumMap<>(SolveResult.Status.class);
+        int errors = 0;
+        if (!json) {
+            System.out.println("file,status,millis,nodes,error");
+        }
+        for (Future<Outcome> future : outcomes) {
+            Outcome outcome;
+            try {
+                outcome = future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            System.out.println(json ? outcome.toJson() : outcome.toCsv());
+            if (outcome.status.equals(ERROR)) {
+                errors++;
+            } else {
+                counts.merge(SolveResult.Status.valueOf(outcome.status), 1, Integer::sum);
+            }
+        }
+
+        System.err.println(names.size() + " safes in " + (System.nanoTime() - start) / 1e9
+                + " seconds on " + threads + " threads: " + counts + (errors > 0 ? ", " + errors + " errors" : ""));
+    }
+
+    /**
+     * Read and solve one safe.  Each solve has a backtracker of its own and
+     * changes a single configuration in place, so nothing is shared
+     * between the threads.
+     *
+     * @param file name of the safe
+     * @param reader reads the safe
+     * @param timeout milliseconds the solve may take
+     * @return how it went
+     */
+    private static Outcome solve(String file, SafeReader reader, long timeout) {
+        long start = System.nanoTime();
+        try {
+            MutableConfiguration init = reader.read();
+            SolveOptions options = new SolveOptions();
+            options.setTimeLimit(timeout);
+            SolveResult result = new IterativeBacktracker(false).solve(init, options);
+            return new Outcome(file, result.getStatus().toString(), (System.nanoTime() - start) / 1e6,
+                    result.getStats().getNodes(), null);
+        } catch (IOException | RuntimeException e) {
+            return new Outcome(file, ERROR, (System.nanoTime() - start) / 1e6, 0, e.toString());
+        }
+    }
+
+    /**
+     * The safe files of a directory or a glob, sorted by name.  A glob is
+     * matched against the paths below the directory it starts with.
+     *
+     * @param pattern a directory or a glob
+     * @return the files, none if the directory does not exist
+     * @throws IOException if a directory can't be read
+     */
+    private static List<Path> findSafes(String pattern) throws IOException {
+        int glob = 0;
+        while (glob < pattern.length() && "*?[{".indexOf(pattern.charAt(glob)) < 0) {
+            glob++;
+        }
+        if (glob == pattern.length()) {
+            if (!Files.isDirectory(Paths.get(pattern))) {
+                return new ArrayList<>();
+            }
+            try (Stream<Path> paths = Files.list(Paths.get(pattern))) {
+                return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        int slash = pattern.lastIndexOf('/', glob);
+        // a glob without a directory is matched against the bare names
+        Path dir = Paths.get(slash < 0 ? "." : pattern.substring(0, slash + 1));
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> slash < 0 ? dir.relativize(path) : path)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param text: a field
+     * @return: the field quoted for CSV
+     */
+    private static String quoteCsv(String text) {
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * @param text: a string
+     * @return: the string as a JSON string
+     */
+    private static String quoteJson(String text) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,32 @@
+package lasers.backtracking;
+
+/**
+ * Decides which cell the safe search branches on next, and in what order
+ * its two children are tried.  Every strategy branches on a single free
+ * cell: one move puts a laser on it, the other rules it out.  A move is
+ * the cell shifted left once, with the low bit set for the laser.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public interface BranchingStrategy {
+    /**
+     * Write the moves that lead from a board to its successors.
+     *
+     * @param state the board, already propagated
+     * @param last the cell the last move was made on, -1 at the start
+     * @param moves array the moves are written to
+     * @param offset first index of moves to write to
+     * @return the number of moves written, at most getMaxMoves()
+     */
+    public int getMoves(SafeState state, int last, int[] moves, int offset);
+
+    /**
+     * The most moves getMoves can write for a single board.
+     *
+     * @return the maximum number of moves
+     */
+    public default int getMaxMoves() {
+        return 2;
+    }
+}
@@ -0,0 +1,27 @@
+package lasers.backtracking;
+
+/**
+ * A flag another thread raises to stop a solve.  The backtracker looks at
+ * it at every node, so the solve returns soon after cancel is called.  A
+ * token can be shared by several solves to stop all of them at once.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Stop every solve that uses this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true once cancel was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
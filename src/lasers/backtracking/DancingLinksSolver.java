@@ -0,0 +1,515 @@
+package lasers.backtracking;
+
+import lasers.model.LasersModel;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+
+/**
+ * A second engine for safes that encodes the puzzle as a cover problem
+ * and solves it with Knuth's Algorithm X on a dancing links matrix.
+ *
+ * Every tile that is not a pillar is a row of the matrix, meaning "put a
+ * laser here".  The columns are
+ *   - one primary column per tile, covered by the rows whose laser would
+ *     light it.  A tile only has to be lit once, so the column is taken out
+ *     of the header list when the first such row is chosen instead of
+ *     removing the other rows that light it.
+ *   - one primary column per numbered pillar, covered by the rows next to
+ *     it.  It has to be hit as many times as its number says and is only
+ *     covered, in the usual way, once that many rows were chosen.
+ *   - one secondary column per row or column segment (a run of tiles
+ *     between pillars), so at most one laser can be put in each of them.
+ * The search always picks the primary column with the fewest ways left
+ * and branches on which of its rows is the first one chosen, so no
+ * solution is ever visited twice.
+ *
+ * The matrix is kept in int arrays indexed by node; node 0 is the root,
+ * the column headers follow it and the rows come after the headers.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class DancingLinksSolver {
+    /** the pillars of the safe, as the model read them */
+    private final String[][] board;
+    private final int rows;
+    private final int cols;
+
+    /** links of every node */
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    /** header of the column a node is in */
+    private final int[] column;
+    /** tile whose laser a node stands for */
+    private final int[] rowTile;
+
+    /** number of rows left in a column */
+    private final int[] size;
+    /** number of rows a primary column still needs, 0 for secondary ones */
+    private final int[] need;
+    /** number of chosen rows lighting a tile column */
+    private final int[] lit;
+
+    /** first node of the row of each tile, or -1 for pillars */
+    private final int[] rowStart;
+    /** where the pillar nodes of the row of each tile start */
+    private final int[] pillarStart;
+    /** one past the last node of the row of each tile */
+    private final int[] rowEnd;
+
+    /** tiles of the chosen rows */
+    private final int[] chosen;
+    private int chosenCount;
+    /** tiles of the chosen rows when a solution was found */
+    private int[] solutionTiles;
+    /** rows left out by the branches tried so far, for every level */
+    private final int[] excluded;
+    private int excludedCount;
+
+    /** number of times search was called */
+    private long nodes;
+
+    /**
+     * Build the matrix of a safe file.
+     *
+     * @param filename: the safe file, in the format LasersModel reads
+     * @throws FileNotFoundException if the file doesn't exist
+     */
+    public DancingLinksSolver(String filename) throws FileNotFoundException {
+        LasersModel model = new LasersModel(filename);
+        model.createBoard();
+        this.rows = model.getROW_DIM();
+        this.cols = model.getCOLUMN_DIM();
+        this.board = model.getBoard();
+        int tiles = rows * cols;
+        HashSet<String> numbers = model.getNumbers();
+
+        // number the segments and the columns of the matrix
+        int[] rowSegment = new int[tiles];
+        int[] colSegment = new int[tiles];
+        int segments = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int tile = row * cols + col;
+                if (isPillar(row, col)) {
+                    rowSegment[tile] = -1;
+                } else if (col > 0 && !isPillar(row, col - 1)) {
+                    rowSegment[tile] = rowSegment[tile - 1];
+                } else {
+                    rowSegment[tile] = segments++;
+                }
+            }
+        }
+        for (int col = 0; col < cols; col++) {
+            for (int row = 0; row < rows; row++) {
+                int tile = row * cols + col;
+                if (isPillar(row, col)) {
+                    colSegment[tile] = -1;
+                } else if (row > 0 && !isPillar(row - 1, col)) {
+                    colSegment[tile] = colSegment[tile - cols];
+                } else {
+                    colSegment[tile] = segments++;
+                }
+            }
+        }
+
+        int headers = 0;
+        int[] tileColumn = new int[tiles];
+        for (int tile = 0; tile < tiles; tile++) {
+            tileColumn[tile] = isPillar(tile / cols, tile % cols) ? -1 : ++headers;
+        }
+        int firstSegment = headers + 1;
+        headers += segments;
+        int[] pillarColumn = new int[tiles];
+        for (int tile = 0; tile < tiles; tile++) {
+            String value = board[tile / cols][tile % cols];
+            pillarColumn[tile] = numbers.contains(value) ? ++headers : -1;
+        }
+
+        // count the nodes: two segments, the lit tiles and the pillars per row
+        int total = headers + 1;
+        for (int tile = 0; tile < tiles; tile++) {
+            if (tileColumn[tile] >= 0) {
+                total += 2 + segmentLength(tile, 1, rowSegment)
+                        + segmentLength(tile, cols, colSegment) - 1;
+                for (int next : neighbours(tile)) {
+                    if (pillarColumn[next] >= 0) {
+                        total++;
+                    }
+                }
+            }
+        }
+
+        left = new int[total];
+        right = new int[total];
+        up = new int[total];
+        down = new int[total];
+        column = new int[total];
+        rowTile = new int[total];
+        size = new int[headers + 1];
+        need = new int[headers + 1];
+        lit = new int[headers + 1];
+        rowStart = new int[tiles];
+        pillarStart = new int[tiles];
+        rowEnd = new int[tiles];
+        chosen = new int[tiles];
+        excluded = new int[tiles];
+
+        // the headers: tiles and pillars are linked to the root, segments
+        // only to themselves
+        for (int header = 0; header <= headers; header++) {
+            up[header] = header;
+            down[header] = header;
+            left[header] = header;
+            right[header] = header;
+        }
+        for (int tile = 0; tile < tiles; tile++) {
+            if (tileColumn[tile] >= 0) {
+                need[tileColumn[tile]] = 1;
+                link(tileColumn[tile]);
+            }
+        }
+        for (int tile = 0; tile < tiles; tile++) {
+            if (pillarColumn[tile] >= 0) {
+                need[pillarColumn[tile]] = Integer.parseInt(board[tile / cols][tile % cols]);
+                link(pillarColumn[tile]);
+            }
+        }
+
+        // the rows, in the order their nodes are laid out
+        int node = headers + 1;
+        for (int tile = 0; tile < tiles; tile++) {
+            if (tileColumn[tile] < 0) {
+                rowStart[tile] = -1;
+                continue;
+            }
+            rowStart[tile] = node;
+            node = addNode(node, tile, firstSegment + rowSegment[tile]);
+            node = addNode(node, tile, firstSegment + colSegment[tile]);
+            for (int other = segmentFirst(tile, 1, rowSegment); other < tiles
+                    && rowSegment[other] == rowSegment[tile]; other++) {
+                node = addNode(node, tile, tileColumn[other]);
+            }
+            for (int other = segmentFirst(tile, cols, colSegment); other < tiles
+                    && colSegment[other] == colSegment[tile]; other += cols) {
+                if (other != tile) {
+                    node = addNode(node, tile, tileColumn[other]);
+                }
+            }
+            pillarStart[tile] = node;
+            for (int next : neighbours(tile)) {
+                if (pillarColumn[next] >= 0) {
+                    node = addNode(node, tile, pillarColumn[next]);
+                }
+            }
+            rowEnd[tile] = node;
+            for (int n = rowStart[tile]; n < node; n++) {
+                left[n] = n == rowStart[tile] ? node - 1 : n - 1;
+                right[n] = n == node - 1 ? rowStart[tile] : n + 1;
+            }
+        }
+
+        // pillars that want no laser rule out their neighbours right away
+        for (int tile = 0; tile < tiles; tile++) {
+            if (pillarColumn[tile] >= 0 && need[pillarColumn[tile]] == 0) {
+                cover(pillarColumn[tile]);
+            }
+        }
+    }
+
+    /**
+     * Look for a solution of the safe.
+     *
+     * @return: the solved board in the format of SafeConfig.getBoard(), or
+     * Optional.empty() if the safe has no solution
+     */
+    public Optional<String[][]> solve() {
+        nodes = 0;
+        solutionTiles = null;
+        if (!search()) {
+            return Optional.empty();
+        }
+        String[][] solution = new String[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                solution[row][col] = isPillar(row, col) ? board[row][col] : "*";
+            }
+        }
+        for (int tile : solutionTiles) {
+            solution[tile / cols][tile % cols] = "L";
+        }
+        return Optional.of(solution);
+    }
+
+    /**
+     * @return: number of search nodes the last solve visited
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Algorithm X.  The matrix is always left as it was found, so the
+     * chosen rows are copied out as soon as every primary column is covered.
+     *
+     * @return: whether a solution was found
+     */
+    private boolean search() {
+        nodes++;
+        if (right[0] == 0) {
+            solutionTiles = Arrays.copyOf(chosen, chosenCount);
+            return true;
+        }
+        // the primary column with the fewest ways to be covered
+        int best = -1;
+        int ways = Integer.MAX_VALUE;
+        for (int c = right[0]; c != 0; c = right[c]) {
+            int w = size[c] - need[c] + 1;
+            if (w < ways) {
+                best = c;
+                ways = w;
+                if (w <= 1) {
+                    break;
+                }
+            }
+        }
+        if (ways <= 0) {
+            return false;
+        }
+
+        int mark = excludedCount;
+        boolean found = false;
+        for (int n = down[best]; n != best && size[best] >= need[best]; n = down[n]) {
+            int tile = rowTile[n];
+            select(tile);
+            chosen[chosenCount++] = tile;
+            found = search();
+            chosenCount--;
+            unselect(tile);
+            if (found) {
+                break;
+            }
+            // later branches leave this row out
+            exclude(tile);
+            excluded[excludedCount++] = tile;
+        }
+        while (excludedCount > mark) {
+            include(excluded[--excludedCount]);
+        }
+        return found;
+    }
+
+    /**
+     * put a laser on a tile
+     * @param tile: the tile, whose row must still be in the matrix
+     */
+    private void select(int tile) {
+        int start = rowStart[tile];
+        // the segments take this row and every row it conflicts with out
+        cover(column[start]);
+        cover(column[start + 1]);
+        for (int n = start + 2; n < pillarStart[tile]; n++) {
+            int c = column[n];
+            if (lit[c]++ == 0) {
+                hide(c);
+            }
+        }
+        for (int n = pillarStart[tile]; n < rowEnd[tile]; n++) {
+            int c = column[n];
+            if (--need[c] == 0) {
+                cover(c);
+            }
+        }
+    }
+
+    /**
+     * take the laser select put on a tile back off
+     * @param tile: the tile
+     */
+    private void unselect(int tile) {
+        int start = rowStart[tile];
+        for (int n = rowEnd[tile] - 1; n >= pillarStart[tile]; n--) {
+            int c = column[n];
+            if (need[c]++ == 0) {
+                uncover(c);
+            }
+        }
+        for (int n = pillarStart[tile] - 1; n >= start + 2; n--) {
+            int c = column[n];
+            if (--lit[c] == 0) {
+                unhide(c);
+            }
+        }
+        uncover(column[start + 1]);
+        uncover(column[start]);
+    }
+
+    /**
+     * take the row of a tile out of all its columns
+     * @param tile: the tile
+     */
+    private void exclude(int tile) {
+        for (int n = rowStart[tile]; n < rowEnd[tile]; n++) {
+            down[up[n]] = down[n];
+            up[down[n]] = up[n];
+            size[column[n]]--;
+        }
+    }
+
+    /**
+     * put the row of a tile back into its columns
+     * @param tile: the tile
+     */
+    private void include(int tile) {
+        for (int n = rowEnd[tile] - 1; n >= rowStart[tile]; n--) {
+            size[column[n]]++;
+            up[down[n]] = n;
+            down[up[n]] = n;
+        }
+    }
+
+    /**
+     * take a column out of the header list and its rows out of the others
+     * @param c: the column header
+     */
+    private void cover(int c) {
+        hide(c);
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * undo cover
+     * @param c: the column header
+     */
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        unhide(c);
+    }
+
+    /**
+     * take a column out of the header list only
+     * @param c: the column header
+     */
+    private void hide(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+    }
+
+    /**
+     * undo hide
+     * @param c: the column header
+     */
+    private void unhide(int c) {
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+
+    /**
+     * append a header to the end of the header list
+     * @param c: the column header
+     */
+    private void link(int c) {
+        left[c] = left[0];
+        right[c] = 0;
+        right[left[0]] = c;
+        left[0] = c;
+    }
+
+    /**
+     * append a node to the bottom of a column
+     * @param node: the node
+     * @param tile: the tile of the row the node belongs to
+     * @param c: the column header
+     * @return: the next free node
+     */
+    private int addNode(int node, int tile, int c) {
+        column[node] = c;
+        rowTile[node] = tile;
+        up[node] = up[c];
+        down[node] = c;
+        down[up[c]] = node;
+        up[c] = node;
+        size[c]++;
+        return node + 1;
+    }
+
+    /**
+     * @param tile: a tile in the segment
+     * @param step: 1 for row segments, cols for column segments
+     * @param segment: the segment of every tile
+     * @return: the first tile of the segment
+     */
+    private int segmentFirst(int tile, int step, int[] segment) {
+        int first = tile;
+        while (first - step >= 0 && segment[first - step] == segment[tile]) {
+            first -= step;
+        }
+        return first;
+    }
+
+    /**
+     * @param tile: a tile in the segment
+     * @param step: 1 for row segments, cols for column segments
+     * @param segment: the segment of every tile
+     * @return: number of tiles in the segment
+     */
+    private int segmentLength(int tile, int step, int[] segment) {
+        int length = 0;
+        for (int other = segmentFirst(tile, step, segment);
+             other < segment.length && segment[other] == segment[tile]; other += step) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @param tile: a tile
+     * @return: the tiles above, below, left and right of it
+     */
+    private int[] neighbours(int tile) {
+        int row = tile / cols;
+        int col = tile % cols;
+        int[] next = new int[4];
+        int count = 0;
+        if (row > 0) {
+            next[count++] = tile - cols;
+        }
+        if (row < rows - 1) {
+            next[count++] = tile + cols;
+        }
+        if (col > 0) {
+            next[count++] = tile - 1;
+        }
+        if (col < cols - 1) {
+            next[count++] = tile + 1;
+        }
+        return Arrays.copyOf(next, count);
+    }
+
+    /**
+     * @param row: row of the tile
+     * @param col: column of the tile
+     * @return: whether the tile is a pillar
+     */
+    private boolean isPillar(int row, int col) {
+        String value = board[row][col];
+        return value.equals("X") || (value.length() == 1 && Character.isDigit(value.charAt(0)));
+    }
+}
@@ -0,0 +1,19 @@
+package lasers.backtracking;
+
+/**
+ * A configuration that can hash the part of its state that decides what
+ * the search below it looks like, so the backtracker can remember dead
+ * ends in a TranspositionTable.  Two configurations with the same hash
+ * must have the same subtree.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public interface HashedConfiguration {
+    /**
+     * The Zobrist hash of the configuration.
+     *
+     * @return the hash
+     */
+    public long getHash();
+}
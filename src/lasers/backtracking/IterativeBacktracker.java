@@ -0,0 +1,238 @@
+package lasers.backtracking;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A backtracker that keeps its own stack of frames in arrays instead of
+ * recursing once per level, so the depth of the search is only limited by
+ * the heap.  It visits configurations in the same order as Backtracker
+ * and gives the same answers, so it can stand in for it on safes deep
+ * enough to overflow the thread stack.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class IterativeBacktracker extends Backtracker {
+    /** frames allocated before the stack has to grow */
+    private static final int INITIAL_DEPTH = 64;
+
+    /**
+     * Initialize a new iterative backtracker.
+     *
+     * @param debug Is debugging output enabled?
+     */
+    public IterativeBacktracker(boolean debug) {
+        super(debug);
+    }
+
+    /**
+     * Try find a solution, within some limits, for a given configuration.
+     *
+     * @param config A valid configuration
+     * @param options the limits of the search
+     * @return the solution, or why there is none
+     */
+    @Override
+    public SolveResult solve(Configuration config, SolveOptions options) {
+        begin(options, false);
+        Configuration[] path = search(config);
+        return finish(path == null ? null : path[path.length - 1]);
+    }
+
+    /**
+     * Find a goal configuration if it exists, and how to get there.
+     *
+     * @param current the starting configuration
+     * @return the configurations from current to a goal configuration.
+     * If there are none, return null.
+     */
+    @Override
+    public List<Configuration> solveWithPath(Configuration current) {
+        begin(new SolveOptions(), false);
+        Configuration[] path = search(current);
+        getStats().stop();
+        return path == null ? null : new LinkedList<>(Arrays.asList(path));
+    }
+
+    /**
+     * The search both solve and solveWithPath run.  Frame i holds the
+     * configuration at depth i and the iterator over its successors.
+     *
+     * @param config the starting configuration
+     * @return the configurations from config to a goal, or null
+     */
+    @SuppressWarnings("unchecked")
+    private Configuration[] search(Configuration config) {
+        SolverStats stats = getStats();
+        if (shouldStop()) {
+            return null;
+        }
+        debugPrint("Current config", config);
+        visit(stats, 0);
+        if (config.isGoal()) {
+            debugPrint("\tGoal config", config);
+            return new Configuration[]{config};
+        }
+        if (isKnownDead(config)) {
+            debugPrint("\tKnown dead end", config);
+            return null;
+        }
+
+        Configuration[] configs = new Configuration[INITIAL_DEPTH];
+        Iterator<Configuration>[] children = (Iterator<Configuration>[]) new Iterator<?>[INITIAL_DEPTH];
+        int depth = 0;
+        configs[0] = config;
+        children[0] = expand(config, 0, stats);
+        while (depth >= 0) {
+            if (!children[depth].hasNext()) {
+                // implicit backtracking happens here
+                markDead(configs[depth]);
+                configs[depth] = null;
+                children[depth] = null;
+                depth--;
+                continue;
+            }
+            Configuration child = children[depth].next();
+            if (!child.isValid()) {
+                debugPrint("\tInvalid successor", child);
+                stats.reject(depth);
+                continue;
+            }
+            if (shouldStop()) {
+                return null;
+            }
+            debugPrint("\tValid successor", child);
+            debugPrint("Current config", child);
+            visit(stats, depth + 1);
+            if (child.isGoal()) {
+                debugPrint("\tGoal config", child);
+                Configuration[] path = Arrays.copyOf(configs, depth + 2);
+                path[depth + 1] = child;
+                return path;
+            }
+            if (isKnownDead(child)) {
+                debugPrint("\tKnown dead end", child);
+                continue;
+            }
+
+            if (++depth == configs.length) {
+                configs = Arrays.copyOf(configs, depth * 2);
+                children = Arrays.copyOf(children, depth * 2);
+            }
+            configs[depth] = child;
+            children[depth] = expand(child, depth, stats);
+        }
+        return null;
+    }
+
+    /**
+     * generate and count the successors of a configuration
+     *
+     * @param config the configuration
+     * @param depth its depth
+     * @param stats the counters
+     * @return an iterator over the successors
+     */
+    private static Iterator<Configuration> expand(Configuration config, int depth, SolverStats stats) {
+        Collection<Configuration> successors = config.getSuccessors();
+        stats.expand(depth, successors.size());
+        return successors.iterator();
+    }
+
+    /**
+     * Try find a solution, within some limits, by changing a single
+     * configuration in place.  The moves of every level share one int
+     * array; each frame only keeps where its moves start and end.
+     *
+     * @param config A valid configuration, left at the goal if one is found
+     *               (and anywhere in the tree if the search stops early)
+     * @param options the limits of the search
+     * @return a copy of the solution, or why there is none
+     */
+    @Override
+    public SolveResult solve(MutableConfiguration config, SolveOptions options) {
+        SolverStats stats = begin(options, false);
+        boolean found = search(config, stats);
+        return finish(found ? config.snapshot() : null);
+    }
+
+    /**
+     * The in place search.
+     *
+     * @param config the starting configuration, changed in place
+     * @param stats the counters
+     * @return true if config was left at a goal
+     */
+    private boolean search(MutableConfiguration config, SolverStats stats) {
+        if (shouldStop()) {
+            return false;
+        }
+        debugPrint("Current config", config);
+        visit(stats, 0);
+        if (config.isGoal()) {
+            debugPrint("\tGoal config", config);
+            return true;
+        }
+        if (isKnownDead(config)) {
+            debugPrint("\tKnown dead end", config);
+            return false;
+        }
+
+        int maxMoves = config.getMaxMoves();
+        int[] moves = new int[maxMoves * INITIAL_DEPTH];
+        int[] next = new int[INITIAL_DEPTH];
+        int[] end = new int[INITIAL_DEPTH];
+        int depth = 0;
+        end[0] = config.getMoves(moves, 0);
+        stats.expand(0, end[0]);
+        while (depth >= 0) {
+            if (next[depth] == end[depth]) {
+                // implicit backtracking happens here
+                markDead(config);
+                if (--depth >= 0) {
+                    config.unmakeMove();
+                }
+                continue;
+            }
+            config.makeMove(moves[next[depth]++]);
+            if (!config.isValid()) {
+                debugPrint("\tInvalid successor", config);
+                stats.reject(depth);
+                config.unmakeMove();
+                continue;
+            }
+            if (shouldStop()) {
+                return false;
+            }
+            debugPrint("\tValid successor", config);
+            debugPrint("Current config", config);
+            visit(stats, depth + 1);
+            if (config.isGoal()) {
+                debugPrint("\tGoal config", config);
+                return true;
+            }
+            if (isKnownDead(config)) {
+                debugPrint("\tKnown dead end", config);
+                config.unmakeMove();
+                continue;
+            }
+
+            int top = end[depth];
+            if (++depth == next.length) {
+                next = Arrays.copyOf(next, depth * 2);
+                end = Arrays.copyOf(end, depth * 2);
+            }
+            if (top + maxMoves > moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            next[depth] = top;
+            end[depth] = top + config.getMoves(moves, top);
+            stats.expand(depth, end[depth] - top);
+        }
+        return false;
+    }
+}
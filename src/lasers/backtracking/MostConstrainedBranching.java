@@ -0,0 +1,155 @@
+package lasers.backtracking;
+
+/**
+ * Branches where the board is the most constrained: the unlit cell with
+ * the fewest free cells left to light it, or the numbered pillar with the
+ * fewest ways left to place its missing lasers.  Among the free cells of
+ * that constraint it picks the one whose laser lights the most unlit
+ * cells, and tries the laser first.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class MostConstrainedBranching implements BranchingStrategy {
+    @Override
+    public int getMoves(SafeState state, int last, int[] moves, int offset) {
+        int bestWays = Integer.MAX_VALUE;
+        int bestPillar = -1;
+        int bestCell = -1;
+
+        for (int id = 0; id < state.getPillarCount() && bestWays > 2; id++) {
+            int missing = state.getPillarTarget(id) - state.getPillarLasers(id);
+            if (missing > 0) {
+                int ways = choose(state.getFreeNeighbours(state.getPillarCell(id)), missing);
+                if (ways < bestWays) {
+                    bestWays = ways;
+                    bestPillar = id;
+                }
+            }
+        }
+        for (int cell = state.nextEmpty(0); cell >= 0 && bestWays > 2; cell = state.nextEmpty(cell + 1)) {
+            int ways = state.getSources(cell);
+            if (ways < bestWays) {
+                bestWays = ways;
+                bestCell = cell;
+                bestPillar = -1;
+            }
+        }
+
+        int branch;
+        if (bestCell >= 0) {
+            branch = brightestSource(state, bestCell);
+        } else if (bestPillar >= 0) {
+            branch = brightestNeighbour(state, state.getPillarCell(bestPillar));
+        } else {
+            return 0;
+        }
+        moves[offset] = (branch << 1) | 1;
+        moves[offset + 1] = branch << 1;
+        return 2;
+    }
+
+    /**
+     * number of ways to pick k of n neighbours, n is at most 4
+     * @param n: free neighbours
+     * @param k: missing lasers
+     * @return: n choose k
+     */
+    private static int choose(int n, int k) {
+        int ways = 1;
+        for (int i = 0; i < k; i++) {
+            ways = ways * (n - i) / (i + 1);
+        }
+        return ways;
+    }
+
+    /**
+     * the free cell that could light an empty cell and lights the most
+     * @param state: the board
+     * @param cell: the empty cell
+     * @return: the free cell
+     */
+    private static int brightestSource(SafeState state, int cell) {
+        int cols = state.getCols();
+        int row = cell / cols;
+        int col = cell % cols;
+        int best = -1;
+        int bestLit = -1;
+        if (state.isFree(cell)) {
+            best = cell;
+            bestLit = state.countLit(cell);
+        }
+        for (int c = col + 1; c < cols && !state.isPillar(row * cols + c); c++) {
+            int lit = state.isFree(row * cols + c) ? state.countLit(row * cols + c) : -1;
+            if (lit > bestLit) {
+                best = row * cols + c;
+                bestLit = lit;
+            }
+        }
+        for (int c = col - 1; c >= 0 && !state.isPillar(row * cols + c); c--) {
+            int lit = state.isFree(row * cols + c) ? state.countLit(row * cols + c) : -1;
+            if (lit > bestLit) {
+                best = row * cols + c;
+                bestLit = lit;
+            }
+        }
+        for (int r = row + 1; r < state.getRows() && !state.isPillar(r * cols + col); r++) {
+            int lit = state.isFree(r * cols + col) ? state.countLit(r * cols + col) : -1;
+            if (lit > bestLit) {
+                best = r * cols + col;
+                bestLit = lit;
+            }
+        }
+        for (int r = row - 1; r >= 0 && !state.isPillar(r * cols + col); r--) {
+            int lit = state.isFree(r * cols + col) ? state.countLit(r * cols + col) : -1;
+            if (lit > bestLit) {
+                best = r * cols + col;
+                bestLit = lit;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * the free neighbour of a pillar that lights the most
+     * @param state: the board
+     * @param cell: cell of the pillar
+     * @return: the free neighbour
+     */
+    private static int brightestNeighbour(SafeState state, int cell) {
+        int best = -1;
+        int bestLit = -1;
+        for (int direction = 0; direction < 4; direction++) {
+            int neighbour = neighbour(state, cell, direction);
+            if (neighbour >= 0 && state.isFree(neighbour)) {
+                int lit = state.countLit(neighbour);
+                if (lit > bestLit) {
+                    best = neighbour;
+                    bestLit = lit;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * a neighbour of a cell
+     * @param state: the board
+     * @param cell: the cell
+     * @param direction: 0 up, 1 down, 2 right, 3 left
+     * @return: the neighbour, or -1 if it is off the board
+     */
+    private static int neighbour(SafeState state, int cell, int direction) {
+        int cols = state.getCols();
+        switch (direction) {
+            case 0:
+                return cell >= cols ? cell - cols : -1;
+            case 1:
+                return cell + cols < state.getRows() * cols ? cell + cols : -1;
+            case 2:
+                return (cell + 1) % cols != 0 ? cell + 1 : -1;
+            default:
+                return cell % cols != 0 ? cell - 1 : -1;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package lasers.backtracking;
+
+/**
+ * A configuration that is changed in place by the backtracker instead of
+ * producing a new configuration for every successor.  Moves are encoded
+ * as ints by the implementation; the backtracker only asks for them,
+ * makes them and takes them back in reverse order.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public interface MutableConfiguration {
+    /**
+     * Write the moves leading to the successors of the current
+     * configuration, valid and invalid.
+     *
+     * @param moves array the moves are written to
+     * @param offset first index of moves to write to
+     * @return the number of moves written, at most getMaxMoves()
+     */
+    public int getMoves(int[] moves, int offset);
+
+    /**
+     * The most moves getMoves can write for a single configuration.
+     *
+     * @return the maximum number of moves
+     */
+    public int getMaxMoves();
+
+    /**
+     * Apply a move returned by getMoves.
+     *
+     * @param move the move
+     */
+    public void makeMove(int move);
+
+    /**
+     * Take back the last move that was made.
+     */
+    public void unmakeMove();
+
+    /**
+     * Is the current configuration valid or not?
+     *
+     * @return true if valid; false otherwise
+     */
+    public boolean isValid();
+
+    /**
+     * Is the current configuration a goal?
+     * @return true if goal; false otherwise
+     */
+    public boolean isGoal();
+
+    /**
+     * An immutable copy of the current configuration, used to hand the
+     * goal back to the caller.
+     *
+     * @return a copy of the configuration
+     */
+    public Configuration snapshot();
+}
@@ -0,0 +1,145 @@
+package lasers.backtracking;
+
+import lasers.model.LasersModel;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+
+/**
+ * A single safe configuration that the backtracker changes in place.  It
+ * generates the same successors as SafeConfig and has the same goal and
+ * validity rules, but a laser is added to and taken off one board
+ * instead of copying the board for every successor, so the memory used
+ * does not grow with the depth of the search.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class MutableSafeConfig implements MutableConfiguration, HashedConfiguration {
+    /** ints kept per move made: finalRow, finalCol, trail mark */
+    private static final int FRAME = 3;
+
+    /** the model the safe was read from */
+    private final LasersModel model;
+    /** picks the cell to branch on */
+    private final BranchingStrategy strategy;
+    /** the board, changed in place */
+    private final SafeState state;
+    private int finalRow;
+    private int finalCol;
+    /** what is needed to take back each move made */
+    private int[] frames;
+    /** number of moves made */
+    private int depth;
+
+    /**
+     * constructor that reads the safe from a file
+     * @param filename: string with the safe file that we will read
+     * @throws FileNotFoundException if file doesn't exist
+     */
+    public MutableSafeConfig(String filename) throws FileNotFoundException {
+        this(filename, new MostConstrainedBranching());
+    }
+
+    /**
+     * constructor that reads the safe from a file, with the order the
+     * search branches in
+     * @param filename: string with the safe file that we will read
+     * @param strategy: picks the cell each board branches on
+     * @throws FileNotFoundException if file doesn't exist
+     */
+    public MutableSafeConfig(String filename, BranchingStrategy strategy) throws FileNotFoundException {
+        this.strategy = strategy;
+        this.model = new LasersModel(filename);
+        model.createBoard();
+        this.state = new SafeState(model.getBoard());
+        state.recordUndo();
+        state.propagate();
+        this.finalRow = 0;
+        this.finalCol = -1;
+        this.frames = new int[FRAME * (state.getRows() * state.getCols() + 1)];
+    }
+
+    /**
+     * constructor for a safe that is not read from a file, such as one
+     * of a SafeCorpus.  It has no model, so neither does the snapshot
+     * @param board: the safe
+     * @param strategy: picks the cell each board branches on
+     */
+    MutableSafeConfig(String[][] board, BranchingStrategy strategy) {
+        this.strategy = strategy;
+        this.model = null;
+        this.state = new SafeState(board);
+        state.recordUndo();
+        state.propagate();
+        this.finalRow = 0;
+        this.finalCol = -1;
+        this.frames = new int[FRAME * (state.getRows() * state.getCols() + 1)];
+    }
+
+    @Override
+    public int getMoves(int[] moves, int offset) {
+        // a starting safe propagation already proved dead has no moves
+        if (!state.isValid()) {
+            return 0;
+        }
+        return strategy.getMoves(state, state.cell(finalRow, finalCol), moves, offset);
+    }
+
+    @Override
+    public int getMaxMoves() {
+        return strategy.getMaxMoves();
+    }
+
+    @Override
+    public void makeMove(int move) {
+        if (FRAME * (depth + 1) > frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        }
+        int frame = FRAME * depth++;
+        frames[frame] = finalRow;
+        frames[frame + 1] = finalCol;
+        frames[frame + 2] = state.mark();
+
+        SafeConfig.applyMove(state, move);
+        finalRow = (move >> 1) / state.getCols();
+        finalCol = (move >> 1) % state.getCols();
+    }
+
+    @Override
+    public void unmakeMove() {
+        int frame = FRAME * --depth;
+        state.undo(frames[frame + 2]);
+        finalRow = frames[frame];
+        finalCol = frames[frame + 1];
+    }
+
+    @Override
+    public long getHash() {
+        return state.getHash();
+    }
+
+    @Override
+    public boolean isValid() {
+        return state.isValid();
+    }
+
+    @Override
+    public boolean isGoal() {
+        return !state.hasEmptyCell() && state.isValid();
+    }
+
+    @Override
+    public Configuration snapshot() {
+        return new SafeConfig(new SafeState(state), finalRow, finalCol, model, strategy);
+    }
+
+    /**
+     * the String representation of the current board
+     *
+     * @return: string representing
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,413 @@
+package lasers.backtracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A backtracker that searches the top levels of the successor tree in
+ * parallel.  Every valid successor down to the split depth becomes a
+ * RecursiveTask on a ForkJoinPool; below that each task runs the usual
+ * recursive search.  All tasks of a solve share a flag that is raised
+ * as soon as one of them reaches a goal (or the solve is cancelled), and
+ * every task gives up when it sees the flag.  A transposition table set
+ * on this backtracker is shared by all the tasks; a subtree is only
+ * stored as a dead end if it was searched before the flag went up.
+ * Every task counts its own part of the tree and adds its counters to
+ * its parent's once it is joined.
+ *
+ * Counting the solutions splits the tree the same way, but the tasks
+ * search their whole subtree and add up the goals they reach; the flag
+ * goes up once the count reaches its limit.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class ParallelBacktracker extends Backtracker {
+    /** number of levels split into tasks unless told otherwise */
+    public static final int DEFAULT_SPLIT_DEPTH = 10;
+
+    /** the pool the tasks run on */
+    private final ForkJoinPool pool;
+    /** number of levels of the tree that are split into tasks */
+    private final int splitDepth;
+    /** stop flag of the solve in progress, or null */
+    private volatile AtomicBoolean current;
+
+    /**
+     * Initialize a parallel backtracker on the common pool.
+     */
+    public ParallelBacktracker() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    /**
+     * Initialize a parallel backtracker.
+     *
+     * @param pool the pool to run the search on
+     * @param splitDepth number of levels of the tree split into tasks
+     */
+    public ParallelBacktracker(ForkJoinPool pool, int splitDepth) {
+        super(false);
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Try find a solution, within some limits, for a given configuration.
+     * When the safe has several solutions any one of them may be
+     * returned.
+     *
+     * @param config A valid configuration
+     * @param options the limits of the search, shared by all the tasks
+     * @return the solution, or why there is none
+     */
+    @Override
+    public SolveResult solve(Configuration config, SolveOptions options) {
+        AtomicBoolean flag = new AtomicBoolean();
+        SolverStats stats = begin(options, true);
+        SolveTask root = new SolveTask(config, 0, flag);
+        current = flag;
+        if (isCancelled()) {
+            flag.set(true);
+        }
+        Optional<Configuration> sol;
+        try {
+            sol = pool.invoke(root);
+        } finally {
+            current = null;
+            stats.merge(root.stats);
+        }
+        return finish(sol.orElse(null));
+    }
+
+    /**
+     * Count the solutions of a configuration, up to a limit and within the
+     * limits of the options, with the top of the tree split into tasks.
+     * The count may go a little past the limit when several tasks reach a
+     * goal at once.
+     *
+     * @param config A valid configuration
+     * @param limit number of solutions to stop at, Long.MAX_VALUE to find
+     *              them all
+     * @param options the limits of the search, shared by all the tasks
+     * @return how many solutions were found, and whether that is all
+     */
+    @Override
+    public SolutionCount countSolutions(Configuration config, long limit, SolveOptions options) {
+        AtomicBoolean flag = new AtomicBoolean();
+        SolverStats stats = begin(options, true);
+        Counter counter = new Counter(limit, flag);
+        CountTask root = new CountTask(config, 0, counter);
+        current = flag;
+        if (isCancelled()) {
+            flag.set(true);
+        }
+        try {
+            pool.invoke(root);
+        } finally {
+            current = null;
+            stats.merge(root.stats);
+        }
+        stats.stop();
+        long found = counter.found.get();
+        return new SolutionCount(found, found >= limit, getStopReason(),
+                new ArrayList<>(counter.solutions), stats);
+    }
+
+    /**
+     * Stop the solve in progress, if any.  The solve returns
+     * Optional.empty() once its workers have noticed.
+     */
+    @Override
+    public void cancel() {
+        super.cancel();
+        AtomicBoolean flag = current;
+        if (flag != null) {
+            flag.set(true);
+        }
+    }
+
+    /**
+     * The search below a single configuration.
+     */
+    private class SolveTask extends RecursiveTask<Optional<Configuration>> {
+        private static final long serialVersionUID = 1L;
+        private final Configuration config;
+        private final int depth;
+        private final AtomicBoolean stop;
+        /** counters of this task and the tasks it joined */
+        private final SolverStats stats = new SolverStats();
+        /** calls this task made to shouldStop, to look at the clock now and then */
+        private int checks;
+
+        /**
+         * @param config the configuration to search from
+         * @param depth depth of the configuration in the tree
+         * @param stop flag raised once the solve is over
+         */
+        SolveTask(Configuration config, int depth, AtomicBoolean stop) {
+            this.config = config;
+            this.depth = depth;
+            this.stop = stop;
+        }
+
+        @Override
+        protected Optional<Configuration> compute() {
+            if (depth >= splitDepth) {
+                return search(config, depth);
+            }
+            if (stopped()) {
+                return Optional.empty();
+            }
+            visit(stats, depth);
+            if (config.isGoal()) {
+                stop.set(true);
+                return Optional.of(config);
+            }
+            if (isKnownDead(config)) {
+                return Optional.empty();
+            }
+
+            List<SolveTask> tasks = new ArrayList<>();
+            Collection<Configuration> children = config.getSuccessors();
+            stats.expand(depth, children.size());
+            for (Configuration child : children) {
+                if (child.isValid()) {
+                    tasks.add(new SolveTask(child, depth + 1, stop));
+                } else {
+                    stats.reject(depth);
+                }
+            }
+            if (tasks.isEmpty()) {
+                markDead(config);
+                return Optional.empty();
+            }
+            // fork the siblings and keep the first one for this thread
+            for (int i = 1; i < tasks.size(); i++) {
+                tasks.get(i).fork();
+            }
+            Optional<Configuration> sol = tasks.get(0).compute();
+            stats.merge(tasks.get(0).stats);
+            for (int i = 1; i < tasks.size(); i++) {
+                Optional<Configuration> other = tasks.get(i).join();
+                stats.merge(tasks.get(i).stats);
+                if (!sol.isPresent()) {
+                    sol = other;
+                }
+            }
+            if (!sol.isPresent() && !stop.get()) {
+                markDead(config);
+            }
+            return sol;
+        }
+
+        /**
+         * Is the solve over?  Running out of budget or being cancelled
+         * raises the flag so the other tasks see it too.
+         *
+         * @return true if this task should give up
+         */
+        private boolean stopped() {
+            if (!stop.get() && shouldStop(checks++)) {
+                stop.set(true);
+            }
+            return stop.get();
+        }
+
+        /**
+         * the sequential search below the split depth
+         *
+         * @param config the configuration to search from
+         * @param depth depth of the configuration in the tree
+         * @return a solution, or Optional.empty()
+         */
+        private Optional<Configuration> search(Configuration config, int depth) {
+            if (stopped()) {
+                return Optional.empty();
+            }
+            visit(stats, depth);
+            if (config.isGoal()) {
+                stop.set(true);
+                return Optional.of(config);
+            }
+            if (isKnownDead(config)) {
+                return Optional.empty();
+            }
+            Collection<Configuration> children = config.getSuccessors();
+            stats.expand(depth, children.size());
+            for (Configuration child : children) {
+                if (child.isValid()) {
+                    Optional<Configuration> sol = search(child, depth + 1);
+                    if (sol.isPresent()) {
+                        return sol;
+                    }
+                } else {
+                    stats.reject(depth);
+                }
+            }
+            if (!stop.get()) {
+                markDead(config);
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * What the tasks of a count share: the goals reached so far, the first
+     * ones, and the flag raised once the count is over.
+     */
+    private static class Counter {
+        private final long limit;
+        private final AtomicBoolean stop;
+        private final AtomicLong found = new AtomicLong();
+        private final List<Configuration> solutions = new ArrayList<>();
+
+        /**
+         * @param limit number of solutions to stop at
+         * @param stop flag raised once the count is over
+         */
+        Counter(long limit, AtomicBoolean stop) {
+            this.limit = limit;
+            this.stop = stop;
+        }
+
+        /**
+         * count a goal, and raise the flag if it was the last one needed
+         * @param goal the goal
+         */
+        void add(Configuration goal) {
+            synchronized (solutions) {
+                if (solutions.size() < KEPT_SOLUTIONS) {
+                    solutions.add(goal);
+                }
+            }
+            if (found.incrementAndGet() >= limit) {
+                stop.set(true);
+            }
+        }
+    }
+
+    /**
+     * The count below a single configuration.
+     */
+    private class CountTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final Configuration config;
+        private final int depth;
+        private final Counter counter;
+        /** counters of this task and the tasks it joined */
+        private final SolverStats stats = new SolverStats();
+        /** calls this task made to shouldStop, to look at the clock now and then */
+        private int checks;
+
+        /**
+         * @param config the configuration to count from
+         * @param depth depth of the configuration in the tree
+         * @param counter what the tasks of the count share
+         */
+        CountTask(Configuration config, int depth, Counter counter) {
+            this.config = config;
+            this.depth = depth;
+            this.counter = counter;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth >= splitDepth) {
+                return count(config, depth);
+            }
+            if (stopped()) {
+                return 0L;
+            }
+            visit(stats, depth);
+            if (config.isGoal()) {
+                counter.add(config);
+                return 1L;
+            }
+            if (isKnownDead(config)) {
+                return 0L;
+            }
+
+            List<CountTask> tasks = new ArrayList<>();
+            Collection<Configuration> children = config.getSuccessors();
+            stats.expand(depth, children.size());
+            for (Configuration child : children) {
+                if (child.isValid()) {
+                    tasks.add(new CountTask(child, depth + 1, counter));
+                } else {
+                    stats.reject(depth);
+                }
+            }
+            long found = 0;
+            if (!tasks.isEmpty()) {
+                for (int i = 1; i < tasks.size(); i++) {
+                    tasks.get(i).fork();
+                }
+                found = tasks.get(0).compute();
+                stats.merge(tasks.get(0).stats);
+                for (int i = 1; i < tasks.size(); i++) {
+                    found += tasks.get(i).join();
+                    stats.merge(tasks.get(i).stats);
+                }
+            }
+            if (found == 0 && !counter.stop.get()) {
+                markDead(config);
+            }
+            return found;
+        }
+
+        /**
+         * Is the count over?  Running out of budget or being cancelled
+         * raises the flag so the other tasks see it too.
+         *
+         * @return true if this task should give up
+         */
+        private boolean stopped() {
+            if (!counter.stop.get() && shouldStop(checks++)) {
+                counter.stop.set(true);
+            }
+            return counter.stop.get();
+        }
+
+        /**
+         * the sequential count below the split depth
+         *
+         * @param config the configuration to count from
+         * @param depth depth of the configuration in the tree
+         * @return number of solutions found below it
+         */
+        private long count(Configuration config, int depth) {
+            if (stopped()) {
+                return 0;
+            }
+            visit(stats, depth);
+            if (config.isGoal()) {
+                counter.add(config);
+                return 1;
+            }
+            if (isKnownDead(config)) {
+                return 0;
+            }
+            long found = 0;
+            Collection<Configuration> children = config.getSuccessors();
+            stats.expand(depth, children.size());
+            for (Configuration child : children) {
+                if (child.isValid()) {
+                    found += count(child, depth + 1);
+                } else {
+                    stats.reject(depth);
+                }
+            }
+            if (found == 0 && !counter.stop.get()) {
+                markDead(config);
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package lasers.backtracking;
+
+/**
+ * Branches on the free cells in row major order, trying a laser before
+ * ruling the cell out.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class RowMajorBranching implements BranchingStrategy {
+    @Override
+    public int getMoves(SafeState state, int last, int[] moves, int offset) {
+        // every cell before the last move has already been decided
+        int cell = state.nextFree(last + 1);
+        if (cell < 0) {
+            return 0;
+        }
+        moves[offset] = (cell << 1) | 1;
+        moves[offset + 1] = cell << 1;
+        return 2;
+    }
+}
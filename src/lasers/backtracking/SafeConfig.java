@@ -19,8 +19,15 @@ import java.util.*;
  * @author Julio Cuello
  */
 
-public class SafeConfig implements Configuration {
+public class SafeConfig implements Configuration, HashedConfiguration {
+    /** the model the safe was read from */
     private LasersModel model;
+    /** the packed board of this configuration, never changed once built */
+    private SafeState state;
+    /** model view of this configuration, built on demand */
+    private LasersModel boardModel;
+    /** picks the cell to branch on, shared by every configuration of a search */
+    private final BranchingStrategy strategy;
     private int finalRow;
     private int finalCol;
 
@@ -30,28 +37,56 @@ public class SafeConfig implements Configuration {
      * @throws FileNotFoundException
      */
     public SafeConfig(String filename) throws FileNotFoundException {
+        this(filename, new MostConstrainedBranching());
+    }
+
+    /**
+     * Safeconfig for the first safeconfig, with the order the search
+     * branches in
+     * @param filename: string wth the safe file that we will read
+     * @param strategy: picks the cell each configuration branches on
+     * @throws FileNotFoundException
+     */
+    public SafeConfig(String filename, BranchingStrategy strategy) throws FileNotFoundException {
+        this.strategy = strategy;
         this.model = new LasersModel(filename);
         model.createBoard();
+        this.state = new SafeState(model.getBoard());
+        state.propagate();
         finalRow = 0;
         finalCol = -1;
     }
 
     /**
-     * the second safeConfig called by the successors
-     * @param board: the board that corresponds to this successor
+     * Safeconfig for the first safeconfig of a board that is not read from
+     * a file, such as the ones SafeGenerator makes.  It has no model, so
+     * getModel can't be used on it
+     * @param board: the safe
+     * @param strategy: picks the cell each configuration branches on
+     */
+    SafeConfig(String[][] board, BranchingStrategy strategy) {
+        this.strategy = strategy;
+        this.state = new SafeState(board);
+        state.propagate();
+        finalRow = 0;
+        finalCol = -1;
+    }
+
+    /**
+     * the second safeConfig called by the successors and by
+     * MutableSafeConfig when it hands back a copy of its board
+     * @param state: the packed board that corresponds to this successor
      * @param finalRow: the last row we checked
      * @param finalCol: last column we checked
-     * @param oldModel: the model from the old safeConfig
-     * @param laser: boolean that determines if the successor added a laser or not in order for the board tobe updated
+     * @param model: the model from the old safeConfig
+     * @param strategy: picks the cell to branch on
      */
-
-    private SafeConfig(String[][]board, int finalRow, int finalCol, LasersModel oldModel, boolean laser){
+    SafeConfig(SafeState state, int finalRow, int finalCol, LasersModel model, BranchingStrategy strategy){
+        this.strategy = strategy;
+        this.state = state;
         this.finalRow = finalRow;
         this.finalCol = finalCol;
-        this.model= new LasersModel(board, oldModel);
-        if (laser){
-            model.add(finalRow, finalCol);
-        }
+        this.model = model;
     }
 
     /**
@@ -60,49 +95,51 @@ public class SafeConfig implements Configuration {
      */
     @Override
     public Collection<Configuration> getSuccessors() {
-        List<Configuration> successors = new ArrayList<>(2);
-        int row = finalRow;
-        int col = finalCol;
-        col++;
-
-        if(col == model.getCOLUMN_DIM()) {
-            col = 0;
-            row++;
+        // a starting safe propagation already proved dead has no successors
+        if (!state.isValid()) {
+            return new ArrayList<>();
         }
-
-        if(row < model.getROW_DIM()) {
-            String[][] copy = new String[model.getROW_DIM()][model.getCOLUMN_DIM()];
-            String[][] laserCopy = new String[model.getROW_DIM()][model.getCOLUMN_DIM()];
-            for(int i=0; i<model.getROW_DIM(); i++) {
-                for (int j = 0; j < model.getCOLUMN_DIM(); j++) {
-                    assert false;
-                    copy[i][j] = model.getValue(i,j);
-                    laserCopy[i][j] = model.getValue(i,j);
-                }
-            }
-
-            if (model.getNumbers().contains(model.getValue(row, col))) {
-                if (getEmptyTiles(row, col) != null) {
-                    List<Integer> freeTiles = getEmptyTiles(row, col);
-                    if (freeTiles.size() >= 2){
-                        successors.add(new SafeConfig(laserCopy, freeTiles.get(0), freeTiles.get(1), model, true));
-                    }
-                }
-            }
-
-            if (laserCopy[row][col].equals(".")){
-                successors.add(new SafeConfig(laserCopy, row, col, model, true));
-            }
-
-            successors.add(new SafeConfig(copy, row, col, model, false));
+        int[] moves = new int[strategy.getMaxMoves()];
+        int count = strategy.getMoves(state, state.cell(finalRow, finalCol), moves, 0);
+        List<Configuration> successors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i] >> 1;
+            SafeState next = new SafeState(state);
+            applyMove(next, moves[i]);
+            successors.add(new SafeConfig(next, cell / state.getCols(), cell % state.getCols(), model, strategy));
         }
         return successors;
     }
 
+    /**
+     * Make a move returned by a BranchingStrategy on a board, then apply every move
+     * it forces.
+     *
+     * @param state: the board
+     * @param move: the move
+     */
+    static void applyMove(SafeState state, int move) {
+        if ((move & 1) != 0) {
+            state.addLaser(move >> 1);
+        } else {
+            state.block(move >> 1);
+        }
+        state.propagate();
+    }
+
     /**
      * getter for the board from the config
      */
-    public String[][] getBoard(){return model.getBoard();}
+    public String[][] getBoard(){return state.toBoard();}
+
+    /**
+     * the Zobrist hash of the lasers and ruled out cells of this config
+     * @return: the hash
+     */
+    @Override
+    public long getHash() {
+        return state.getHash();
+    }
 
     /**
      * this method checks wether the current successor is on the right track towards a complete board
@@ -110,22 +147,7 @@ public class SafeConfig implements Configuration {
      */
     @Override
     public boolean isValid() {
-        for (int i = 0; i < model.getROW_DIM(); i++) {
-            for (int j = 0; j < model.getCOLUMN_DIM(); j++) {
-                if(!model.laserChecker(i, j)){
-                    return false;
-                }
-                if((model.getNumbers().contains(model.getValue(i,j)))){
-                    if((model.getAdjoiningLasers(i,j) > Integer.parseInt(model.getValue(i,j)))){
-                        return false;
-                    }
-                    if (getETiles(i,j) == 0 && model.getAdjoiningLasers(i,j) != Integer.parseInt(model.getValue(i,j))){
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return state.isValid();
     }
 
     /**
@@ -135,18 +157,7 @@ public class SafeConfig implements Configuration {
      */
     @Override
     public boolean isGoal() {
-        //return model.verify();
-        if(finalRow != model.getROW_DIM()-1 && finalCol != model.getCOLUMN_DIM()-1){
-            return false;
-        }
-        for (int i = 0; i < model.getROW_DIM(); i++) {
-            for (int j = 0; j < model.getCOLUMN_DIM(); j++) {
-                if (model.getValue(i,j).equals(".")){
-                    return false;
-                }
-            }
-        }
-        return true;
+        return !state.hasEmptyCell() && state.isValid();
     }
 
     /**
@@ -155,17 +166,20 @@ public class SafeConfig implements Configuration {
      * @return: string representing
      */
     public String toString() {
+        String[][] board = getBoard();
+        int rows = state.getRows();
+        int cols = state.getCols();
         StringBuilder str = new StringBuilder();
         str.append("  ");
         // build the column number
-        for (int col = 0; col < model.getCOLUMN_DIM(); ++col) {
+        for (int col = 0; col < cols; ++col) {
             str.append(col%10);
             str.append(" ");
         }
         str.append("\n");
         str.append("  ");
-        for (int col = 0; col < model.getCOLUMN_DIM(); ++col) {
-            if(col == model.getCOLUMN_DIM()-1){
+        for (int col = 0; col < cols; ++col) {
+            if(col == cols-1){
                 str.append("-");
                 break;
             }
@@ -173,10 +187,10 @@ public class SafeConfig implements Configuration {
         }
         str.append("\n");
         // build the rows with number and values
-        for (int row = 0; row < model.getROW_DIM(); ++row) {
+        for (int row = 0; row < rows; ++row) {
             str.append(row%10).append("|");
-            for (int col = 0; col < model.getCOLUMN_DIM(); ++col) {
-                str.append(model.getBoard()[row][col]);
+            for (int col = 0; col < cols; ++col) {
+                str.append(board[row][col]);
                 str.append(" ");
             }
             str.append("\n");
@@ -191,38 +205,27 @@ public class SafeConfig implements Configuration {
      * @return: list of the coordinates where we will add a laser
      */
     public List<Integer> getEmptyTiles(int row, int col){
-        int counter = 0;
+        int cell = state.cell(row, col);
         List<Integer> freeTiles = new ArrayList<>();
-        if ((row - 1) >= 0) {
-            if (model.getBoard()[row - 1][col].equals(".")) {
-                counter++;
-                freeTiles.add(row-1);
-                freeTiles.add(col);
-            }
+        if ((row - 1) >= 0 && state.isEmpty(cell - state.getCols())) {
+            freeTiles.add(row-1);
+            freeTiles.add(col);
         }
-        if ((row + 1) < model.getROW_DIM()) {
-            if (model.getBoard()[row + 1][col].equals(".")) {
-                counter++;
-                freeTiles.add(row+1);
-                freeTiles.add(col);
-            }
+        if ((row + 1) < state.getRows() && state.isEmpty(cell + state.getCols())) {
+            freeTiles.add(row+1);
+            freeTiles.add(col);
         }
-        if ((col + 1) < model.getCOLUMN_DIM()) {
-            if (model.getBoard()[row][col + 1].equals(".")) {
-                counter++;
-                freeTiles.add(row);
-                freeTiles.add(col+1);
-            }
+        if ((col + 1) < state.getCols() && state.isEmpty(cell + 1)) {
+            freeTiles.add(row);
+            freeTiles.add(col+1);
         }
-        if ((col - 1) >= 0) {
-            if (model.getBoard()[row][col - 1].equals(".")) {
-                counter++;
-                freeTiles.add(row);
-                freeTiles.add(col-1);
-            }
+        if ((col - 1) >= 0 && state.isEmpty(cell - 1)) {
+            freeTiles.add(row);
+            freeTiles.add(col-1);
         }
 
-        if (counter == (Integer.parseInt(model.getValue(row, col)) - model.getAdjoiningLasers(row, col))){
+        int id = state.getPillarId(cell);
+        if (id >= 0 && freeTiles.size() / 2 == state.getPillarTarget(id) - state.getPillarLasers(id)){
             return freeTiles;
         }
         return null;
@@ -235,29 +238,7 @@ public class SafeConfig implements Configuration {
      * @return: number of  empty tiles near a pillar
      */
     public int getETiles(int row, int col){
-        int counter = 0;
-
-        if ((row - 1) >= 0) {
-            if (model.getBoard()[row - 1][col].equals(".")) {
-                counter++;
-            }
-        }
-        if ((row + 1) < model.getROW_DIM()) {
-            if (model.getBoard()[row + 1][col].equals(".")) {
-                counter++;
-            }
-        }
-        if ((col + 1) < model.getCOLUMN_DIM()) {
-            if (model.getBoard()[row][col + 1].equals(".")) {
-                counter++;
-            }
-        }
-        if ((col - 1) >= 0) {
-            if (model.getBoard()[row][col - 1].equals(".")) {
-                counter++;
-            }
-        }
-        return counter;
+        return state.getEmptyNeighbours(state.cell(row, col));
     }
 
     /**
@@ -266,14 +247,30 @@ public class SafeConfig implements Configuration {
      */
     public void setModel(LasersModel model) {
         this.model = model;
+        this.state = new SafeState(model.getBoard());
+        state.propagate();
+        this.boardModel = model;
     }
 
     /**
-     * Setter method for model
+     * Getter method for the model.  Configurations made by the search
+     * only hold a packed board, so the model is built the first time it
+     * is asked for.
      * @return the model
      */
     public LasersModel getModel(){
-        return model;
+        if (boardModel == null) {
+            boardModel = new LasersModel(getBoard(), model);
+        }
+        return boardModel;
+    }
+
+    /**
+     * getter for the packed board of this configuration
+     * @return the packed board
+     */
+    public SafeState getState() {
+        return state;
     }
 
     /**
@@ -282,14 +279,6 @@ public class SafeConfig implements Configuration {
      * @return number of lasers on the board
      */
     public int getNumLasers(){
-        int c = 0;
-        for (int i = 0; i < model.getROW_DIM(); i++) {
-            for (int j = 0; j < model.getCOLUMN_DIM(); j++) {
-                if (model.getValue(i,j).equals("L")){
-                    c++;
-                }
-            }
-        }
-        return c;
+        return state.getLaserCount();
     }
 }
@@ -0,0 +1,399 @@
+package lasers.backtracking;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Makes random safes with a unique solution.  A board of the given size
+ * gets pillars at random, with the given density, and a hidden solution
+ * is laid on it: lasers go on cells that are still dark, in random order,
+ * until every cell is lit.  Every pillar then shows how many lasers of
+ * the solution are next to it.  While the board has another solution, a
+ * cell where the two solutions differ becomes a numbered pillar that
+ * rules the other one out, as long as the hidden solution still lights
+ * the board; a board where no cell does is thrown away.  Once the
+ * solution is unique the numbers are taken off the pillars one at a
+ * time, in random order, as long as it stays unique.
+ *
+ * The main method writes safes in the format LasersModel reads, made on
+ * every core:
+ * java SafeGenerator rows cols count out-dir [density] [seed] [threads]
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SafeGenerator {
+    /** fraction of the cells that are pillars unless told otherwise */
+    public static final double DEFAULT_DENSITY = 0.2;
+
+    private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private final int rows;
+    private final int cols;
+    private final double density;
+    private final SplittableRandom random;
+    /** the hidden solution of the board being made */
+    private boolean[][] lasers;
+    /** boards thrown away because they had several solutions */
+    private int rejected;
+
+    /**
+     * @param rows number of rows of the safes
+     * @param cols number of columns of the safes
+     * @param density fraction of the cells that are pillars
+     * @param seed seed of the random boards, the same seed gives the same
+     *             safes
+     */
+    public SafeGenerator(int rows, int cols, double density, long seed) {
+        if (rows < 1 || cols < 1 || density < 0 || density >= 1) {
+            throw new IllegalArgumentException("bad safe size or density");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.density = density;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Make a safe with a unique solution.
+     *
+     * @return the safe, in the format of LasersModel.getBoard
+     */
+    public String[][] generate() {
+        while (true) {
+            String[][] safe = randomSafe();
+            if (makeUnique(safe)) {
+                removeClues(safe);
+                return safe;
+            }
+            rejected++;
+        }
+    }
+
+    /**
+     * @return number of boards thrown away so far because their solution
+     * was not unique
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * A board with random pillars that show the number of lasers next to
+     * them in a hidden solution.
+     *
+     * @return the board
+     */
+    private String[][] randomSafe() {
+        String[][] safe = new String[rows][cols];
+        List<int[]> empty = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (random.nextDouble() < density) {
+                    safe[row][col] = "X";
+                } else {
+                    safe[row][col] = ".";
+                    empty.add(new int[]{row, col});
+                }
+            }
+        }
+        shuffle(empty);
+
+        // a laser on every cell that is still dark lights its row and
+        // column, so no two lasers see each other and every cell is lit
+        boolean[][] lit = new boolean[rows][cols];
+        lasers = new boolean[rows][cols];
+        for (int[] cell : empty) {
+            if (!lit[cell[0]][cell[1]]) {
+                lasers[cell[0]][cell[1]] = true;
+                lit[cell[0]][cell[1]] = true;
+                for (int[] dir : DIRECTIONS) {
+                    int row = cell[0] + dir[0];
+                    int col = cell[1] + dir[1];
+                    while (inside(row, col) && safe[row][col].equals(".")) {
+                        lit[row][col] = true;
+                        row += dir[0];
+                        col += dir[1];
+                    }
+                }
+            }
+        }
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (safe[row][col].equals("X")) {
+                    safe[row][col] = String.valueOf(lasersNextTo(lasers, row, col));
+                }
+            }
+        }
+        return safe;
+    }
+
+    /**
+     * Add numbered pillars until the hidden solution is the only one.
+     *
+     * @param safe a safe the hidden solution solves, changed in place
+     * @return true if its solution is now unique, false if no pillar could
+     * rule out another solution
+     */
+    private boolean makeUnique(String[][] safe) {
+        while (true) {
+            SolutionCount count = countSolutions(safe);
+            if (count.getVerdict() != SolutionCount.Verdict.MULTIPLE) {
+                return count.getVerdict() == SolutionCount.Verdict.UNIQUE;
+            }
+            boolean[][] other = null;
+            for (Configuration sol : count.getSolutions()) {
+                boolean[][] found = lasersOf(((SafeConfig) sol).getBoard());
+                if (!Arrays.deepEquals(found, lasers)) {
+                    other = found;
+                }
+            }
+            int[] cell = pickPillar(safe, other);
+            if (cell == null) {
+                return false;
+            }
+            safe[cell[0]][cell[1]] = String.valueOf(lasersNextTo(lasers, cell[0], cell[1]));
+        }
+    }
+
+    /**
+     * Pick a dark cell of the hidden solution that, as a numbered pillar,
+     * rules out another solution: either that solution has a laser on it
+     * or a different number of lasers next to it.  The hidden solution
+     * must still light every cell with the pillar in its way.
+     *
+     * @param safe the safe
+     * @param other the lasers of another solution
+     * @return the row and column of the cell, or null if there is none
+     */
+    private int[] pickPillar(String[][] safe, boolean[][] other) {
+        List<int[]> cells = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (safe[row][col].equals(".") && !lasers[row][col]
+                        && (other[row][col] || lasersNextTo(other, row, col) != lasersNextTo(lasers, row, col))) {
+                    cells.add(new int[]{row, col});
+                }
+            }
+        }
+        shuffle(cells);
+        for (int[] cell : cells) {
+            safe[cell[0]][cell[1]] = "X";
+            boolean lit = isLit(safe);
+            safe[cell[0]][cell[1]] = ".";
+            if (lit) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param safe: a safe
+     * @return: true if the hidden solution lights every empty cell of it
+     */
+    private boolean isLit(String[][] safe) {
+        boolean[][] lit = new boolean[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (lasers[row][col]) {
+                    lit[row][col] = true;
+                    for (int[] dir : DIRECTIONS) {
+                        int r = row + dir[0];
+                        int c = col + dir[1];
+                        while (inside(r, c) && safe[r][c].equals(".")) {
+                            lit[r][c] = true;
+                            r += dir[0];
+                            c += dir[1];
+                        }
+                    }
+                }
+            }
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (safe[row][col].equals(".") && !lit[row][col]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Take the numbers off the pillars, in random order, that the safe
+     * doesn't need to keep a unique solution.
+     *
+     * @param safe a safe with a unique solution, changed in place
+     */
+    private void removeClues(String[][] safe) {
+        List<int[]> pillars = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (!safe[row][col].equals(".")) {
+                    pillars.add(new int[]{row, col});
+                }
+            }
+        }
+        shuffle(pillars);
+        for (int[] pillar : pillars) {
+            String clue = safe[pillar[0]][pillar[1]];
+            safe[pillar[0]][pillar[1]] = "X";
+            if (!isUnique(safe)) {
+                safe[pillar[0]][pillar[1]] = clue;
+            }
+        }
+    }
+
+    /**
+     * @param safe a safe
+     * @return true if it has exactly one solution
+     */
+    private static boolean isUnique(String[][] safe) {
+        return countSolutions(safe).getVerdict() == SolutionCount.Verdict.UNIQUE;
+    }
+
+    /**
+     * @param safe a safe
+     * @return its solutions, counted up to two
+     */
+    private static SolutionCount countSolutions(String[][] safe) {
+        SafeConfig init = new SafeConfig(safe, new MostConstrainedBranching());
+        return new Backtracker(false).countSolutions(init, 2);
+    }
+
+    /**
+     * @param board: a board with lasers on it
+     * @return: where the lasers are
+     */
+    private boolean[][] lasersOf(String[][] board) {
+        boolean[][] found = new boolean[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                found[row][col] = board[row][col].equals("L");
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param lasers: where the lasers are
+     * @param row: row of a cell
+     * @param col: column of the cell
+     * @return: number of lasers next to the cell
+     */
+    private int lasersNextTo(boolean[][] lasers, int row, int col) {
+        int count = 0;
+        for (int[] dir : DIRECTIONS) {
+            int r = row + dir[0];
+            int c = col + dir[1];
+            if (inside(r, c) && lasers[r][c]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param row: a row
+     * @param col: a column
+     * @return: true if the cell is on the board
+     */
+    private boolean inside(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * put a list in random order
+     * @param cells: the list
+     */
+    private void shuffle(List<int[]> cells) {
+        for (int i = cells.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int[] cell = cells.get(i);
+            cells.set(i, cells.get(j));
+            cells.set(j, cell);
+        }
+    }
+
+    /**
+     * @param safe: a safe
+     * @return: the safe in the format of the safe files
+     */
+    public static String toText(String[][] safe) {
+        StringBuilder text = new StringBuilder();
+        text.append(safe.length).append(" ").append(safe.length == 0 ? 0 : safe[0].length).append("\n");
+        for (String[] row : safe) {
+            text.append(String.join(" ", row)).append("\n");
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4 || args.length > 7) {
+            System.out.println("Usage: java SafeGenerator rows cols count out-dir [density] [seed] [threads]");
+            return;
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int count = Integer.parseInt(args[2]);
+        Path dir = Paths.get(args[3]);
+        double density = args.length > 4 ? Double.parseDouble(args[4]) : DEFAULT_DENSITY;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        int threads = args.length > 6 ? Integer.parseInt(args[6])
+                : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(dir);
+
+        // start the clock
+        long start = System.nanoTime();
+
+        // every safe has a seed of its own, so the safes don't depend on
+        // the number of threads
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> done = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long safeSeed = seed + i;
+            Path file = dir.resolve(String.format("%dx%dsafe-%05d.txt", rows, cols, i));
+            done.add(pool.submit(() -> {
+                SafeGenerator generator = new SafeGenerator(rows, cols, density, safeSeed);
+                write(file, generator.generate());
+                return generator.getRejected();
+            }));
+        }
+        pool.shutdown();
+        int rejected = 0;
+        for (Future<Integer> future : done) {
+            try {
+                rejected += future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        System.out.println(count + " safes in " + (System.nanoTime() - start) / 1e9 + " seconds on "
+                + threads + " threads, " + rejected + " boards thrown away (seed " + seed + ")");
+    }
+
+    /**
+     * @param file: the file to write
+     * @param safe: the safe to write to it
+     * @throws FileNotFoundException if the file can't be written
+     */
+    private static void write(Path file, String[][] safe) throws FileNotFoundException {
+        try (PrintWriter out = new PrintWriter(file.toFile())) {
+            out.print(toText(safe));
+        }
+    }
+}
@@ -1,38 +1,89 @@
 package lasers.backtracking;
 
 import java.io.FileNotFoundException;
+import java.io.PrintWriter;
 import java.util.Optional;
 
 /**
  * This is the main class for a safe solver.  It runs the backtracking
- * algorithm and displays the solution, if one exists.
+ * algorithm and displays the solution, if one exists, and the counters
+ * of the search.  An optional argument gives the memory, in megabytes, of
+ * a transposition table that remembers dead ends during the search;
+ * another one ending in .json is a file the counters are written to.
+ * With "unique" the solver looks for a second solution instead of
+ * stopping at the first, and says whether the safe has a unique solution,
+ * multiple solutions or none.
  *
  * @author RIT CS
  */
 public class SafeSolver {
     public static void main(String[] args) throws FileNotFoundException {
-        if (args.length != 2) {
-            System.out.println("Usage: java SafeSolver safe.in debug");
+        if (args.length < 2 || args.length > 5) {
+            System.out.println("Usage: java SafeSolver safe.in debug [table-MB] [stats.json] [unique]");
         } else {
-            // construct the initial configuration from the file
-            Configuration init = new SafeConfig(args[0]);
-
-            // create the backtracker with the debug flag
             boolean debug = args[1].equals("true");
-            Backtracker bt = new Backtracker(debug);
+            TranspositionTable table = null;
+            String statsFile = null;
+            boolean unique = false;
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("unique")) {
+                    unique = true;
+                } else if (args[i].endsWith(".json")) {
+                    statsFile = args[i];
+                } else {
+                    table = new TranspositionTable(Long.parseLong(args[i]) << 20);
+                }
+            }
 
             // start the clock
             double start = System.currentTimeMillis();
 
-            // attempt to solve the puzzle
-            Optional<Configuration> sol = bt.solve(init);
+            // attempt to solve the puzzle.  Debugging output only makes
+            // sense from a single thread, so it uses the in place search;
+            // otherwise the top of the tree is searched in parallel.
+            Optional<Configuration> sol;
+            SolutionCount count = null;
+            Backtracker bt;
+            if (unique) {
+                // counting needs every configuration of the tree, so
+                // there is no in place version of it
+                Configuration init = new SafeConfig(args[0]);
+                bt = debug ? new Backtracker(true) : new ParallelBacktracker();
+                bt.setTranspositionTable(table);
+                count = bt.countSolutions(init, 2);
+                sol = count.getSolutions().stream().findFirst();
+            } else if (debug) {
+                MutableConfiguration init = new MutableSafeConfig(args[0]);
+                bt = new IterativeBacktracker(true);
+                bt.setTranspositionTable(table);
+                sol = bt.solve(init);
+            } else {
+                Configuration init = new SafeConfig(args[0]);
+                bt = new ParallelBacktracker();
+                bt.setTranspositionTable(table);
+                sol = bt.solve(init);
+            }
 
             // compute the elapsed time
             System.out.println("Elapsed time: " +
                     (System.currentTimeMillis() - start)/1000.0 + " seconds.");
+            System.out.println(bt.getStats());
+            if (table != null) {
+                System.out.println(table);
+            }
+            if (statsFile != null) {
+                try (PrintWriter out = new PrintWriter(statsFile)) {
+                    out.println(bt.getStats().toJson());
+                }
+            }
 
             // indicate whether there was a solution, or not
-            if (sol.isPresent()) {
+            if (count != null) {
+                System.out.println(count.getVerdict().toString().toLowerCase());
+                for (Configuration other : count.getSolutions()) {
+                    System.out.println("Solution:\n" + other);
+                }
+            } else if (sol.isPresent()) {
                 System.out.println("Solution:\n" + sol.get());
             } else {
                 System.out.println("No solution!");
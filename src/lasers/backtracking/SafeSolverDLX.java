@@ -0,0 +1,79 @@
+package lasers.backtracking;
+
+import lasers.model.LasersModel;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * This is the main class for the dancing links safe solver.  It solves
+ * the safe with DancingLinksSolver and displays the solution, if one
+ * exists.  With "compare" as the second argument the safe is also solved
+ * with the backtracker, and both solutions are verified and timed.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SafeSolverDLX {
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length != 1 && !(args.length == 2 && args[1].equals("compare"))) {
+            System.out.println("Usage: java SafeSolverDLX safe.in [compare]");
+        } else {
+            LasersModel model = new LasersModel(args[0]);
+            model.createBoard();
+
+            // start the clock
+            double start = System.currentTimeMillis();
+
+            // build the matrix and attempt to solve the puzzle
+            DancingLinksSolver dlx = new DancingLinksSolver(args[0]);
+            Optional<String[][]> sol = dlx.solve();
+
+            // compute the elapsed time
+            System.out.println("Elapsed time: " +
+                    (System.currentTimeMillis() - start)/1000.0 + " seconds.");
+            System.out.println("Search nodes: " + dlx.getNodes());
+
+            // indicate whether there was a solution, or not
+            if (sol.isPresent()) {
+                System.out.println("Solution:\n" + new LasersModel(sol.get(), model));
+            } else {
+                System.out.println("No solution!");
+            }
+
+            if (args.length == 2) {
+                start = System.currentTimeMillis();
+                Optional<Configuration> other = new Backtracker(false).solve(new SafeConfig(args[0]));
+                System.out.println("Backtracker elapsed time: " +
+                        (System.currentTimeMillis() - start)/1000.0 + " seconds.");
+
+                // several solutions are possible, so each one is verified on
+                // its own instead of comparing the boards
+                System.out.println("Dancing links: " + describe(sol, model));
+                System.out.println("Backtracker: " + describe(
+                        other.map(config -> ((SafeConfig) config).getBoard()), model));
+                if (sol.isPresent() != other.isPresent()) {
+                    System.out.println("The engines disagree!");
+                } else if (sol.isPresent() && Arrays.deepEquals(sol.get(),
+                        ((SafeConfig) other.get()).getBoard())) {
+                    System.out.println("Both engines found the same solution.");
+                } else {
+                    System.out.println("The engines agree.");
+                }
+            }
+        }
+    }
+
+    /**
+     * @param sol: the solution an engine found, if any
+     * @param model: the model of the safe
+     * @return: what the solution looks like when verified
+     */
+    private static String describe(Optional<String[][]> sol, LasersModel model) {
+        if (!sol.isPresent()) {
+            return "no solution";
+        }
+        return new LasersModel(sol.get(), model).verify() ? "verified" : "NOT verified";
+    }
+}
@@ -1,26 +1,28 @@
 package lasers.backtracking;
 
 import java.io.FileNotFoundException;
+import java.io.PrintWriter;
 import java.util.List;
 
 /**
  * This is the main class for a safe solver with a path.  It runs the
  * backtracking algorithm and displays the full path of the solution,
- * step by step, if one exists.
+ * step by step, if one exists, and the counters of the search.  The
+ * counters are also written, as JSON, to the optional third argument.
  *
  * @author RIT CS
  */
 public class SafeSolverPath {
     public static void main(String[] args) throws FileNotFoundException {
-        if (args.length != 2) {
-            System.out.println("Usage: java SafeSolverPath safe.in debug");
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Usage: java SafeSolverPath safe.in debug [stats.json]");
         } else {
             // construct the initial configuration from the file
             Configuration init = new SafeConfig(args[0]);
 
             // create the backtracker with the debug flag
             boolean debug = args[1].equals("true");
-            Backtracker bt = new Backtracker(debug);
+            Backtracker bt = new IterativeBacktracker(debug);
 
             // start the clock
             double start = System.currentTimeMillis();
@@ -31,6 +33,12 @@ public class SafeSolverPath {
             // compute the elapsed time
             System.out.println("Elapsed time: " +
                     (System.currentTimeMillis() - start)/1000.0 + " seconds.");
+            System.out.println(bt.getStats());
+            if (args.length == 3) {
+                try (PrintWriter out = new PrintWriter(args[2])) {
+                    out.println(bt.getStats().toJson());
+                }
+            }
 
             // indicate whether there was a solution, or not
             if (path != null) {
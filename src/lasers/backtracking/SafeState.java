@@ -0,0 +1,943 @@
+package lasers.backtracking;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A packed representation of a safe that the backtracker works on.  The
+ * lasers, the lit cells, the cells ruled out for a laser and the pillars
+ * are kept as bitsets (one bit per cell, row major), and the numbered
+ * pillars keep a count of the lasers next to them.  The pillar layout
+ * never changes during a search, so it is shared between a state and all
+ * of its copies; copying a state only copies the per state words and the
+ * pillar counts.
+ *
+ * Every row and column is cut by the pillars into segments, and the state
+ * keeps the number of free cells in each one.  A change only marks the
+ * segments and pillars it touched, and propagation only looks again at
+ * those, so checking a move costs about the length of the segments it
+ * changed rather than the size of the safe.
+ *
+ * The lasers and the ruled out cells decide everything else in a state,
+ * so the state keeps a Zobrist hash of them for the transposition table.
+ * The random keys are drawn once per safe and shared by its copies.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SafeState {
+    /** undo trail entry kinds, kept in the low two bits of an entry */
+    private static final int LIT = 0, BLOCKED = 1, LASER = 2, FLAG = 3;
+    /** string values of the numbered pillars */
+    private static final String[] NUMBERS = {"0", "1", "2", "3", "4"};
+
+    /** the row dimensions of the safe */
+    private final int rows;
+    /** the column dimensions of the safe */
+    private final int cols;
+    /** cells holding a pillar, numbered or not (shared) */
+    private final long[] pillars;
+    /** id of the numbered pillar on each cell, or -1 (shared) */
+    private final int[] pillarId;
+    /** cell of each numbered pillar (shared) */
+    private final int[] pillarCell;
+    /** number written on each numbered pillar (shared) */
+    private final byte[] pillarTarget;
+    /** row segment of each cell, or -1 for pillars (shared) */
+    private final int[] rowSegment;
+    /** column segment of each cell, or -1 for pillars (shared) */
+    private final int[] colSegment;
+    /** first cell of each segment (shared) */
+    private final int[] segmentStart;
+    /** distance between the cells of each segment, 1 or cols (shared) */
+    private final int[] segmentStep;
+    /** number of cells in each segment (shared) */
+    private final int[] segmentLength;
+    /** Zobrist key of a laser on each cell (shared) */
+    private final long[] laserKeys;
+    /** Zobrist key of each cell being ruled out (shared) */
+    private final long[] blockedKeys;
+
+    /** cells holding a laser */
+    private final long[] lasers;
+    /** cells lit by a laser beam */
+    private final long[] lit;
+    /** empty cells that have been ruled out for a laser */
+    private final long[] blocked;
+    /** lasers adjacent to each numbered pillar */
+    private final byte[] pillarLasers;
+    /** free cells in each segment */
+    private final int[] segmentFree;
+    /** segments changed since the last propagation */
+    private final long[] dirtySegments;
+    /** numbered pillars changed since the last propagation */
+    private final long[] dirtyPillars;
+    /** Zobrist hash of the lasers and the ruled out cells */
+    private long hash;
+    /** true if two lasers point at each other */
+    private boolean conflict;
+    /** true if propagation found a pillar or cell that can't be satisfied */
+    private boolean dead;
+    /** changes made since the state started recording undo, or null */
+    private int[] trail;
+    /** number of cells in the trail */
+    private int trailSize;
+
+    /**
+     * Build the state from a board in the format used by the model.
+     * Beams are not read from the board, they are recomputed from the
+     * lasers.
+     *
+     * @param board the safe
+     */
+    public SafeState(String[][] board) {
+        this.rows = board.length;
+        this.cols = rows == 0 ? 0 : board[0].length;
+        int words = (rows * cols + 63) >>> 6;
+        this.pillars = new long[words];
+        this.lasers = new long[words];
+        this.lit = new long[words];
+        this.blocked = new long[words];
+        this.pillarId = new int[rows * cols];
+
+        int numbered = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                String value = board[row][col];
+                pillarId[cell] = -1;
+                if (value.equals("X")) {
+                    set(pillars, cell);
+                } else if (value.length() == 1 && value.charAt(0) >= '0' && value.charAt(0) <= '4') {
+                    set(pillars, cell);
+                    pillarId[cell] = numbered++;
+                }
+            }
+        }
+
+        this.pillarCell = new int[numbered];
+        this.pillarTarget = new byte[numbered];
+        this.pillarLasers = new byte[numbered];
+        for (int cell = 0; cell < pillarId.length; cell++) {
+            if (pillarId[cell] >= 0) {
+                pillarCell[pillarId[cell]] = cell;
+                pillarTarget[pillarId[cell]] = (byte) (board[cell / cols][cell % cols].charAt(0) - '0');
+            }
+        }
+
+        this.rowSegment = new int[rows * cols];
+        this.colSegment = new int[rows * cols];
+        int[] start = new int[2 * rows * cols];
+        int[] step = new int[2 * rows * cols];
+        int[] length = new int[2 * rows * cols];
+        int segments = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                rowSegment[cell] = -1;
+                if (!get(pillars, cell)) {
+                    if (col == 0 || get(pillars, cell - 1)) {
+                        start[segments] = cell;
+                        step[segments++] = 1;
+                    }
+                    rowSegment[cell] = segments - 1;
+                    length[segments - 1]++;
+                }
+            }
+        }
+        for (int col = 0; col < cols; col++) {
+            for (int row = 0; row < rows; row++) {
+                int cell = row * cols + col;
+                colSegment[cell] = -1;
+                if (!get(pillars, cell)) {
+                    if (row == 0 || get(pillars, cell - cols)) {
+                        start[segments] = cell;
+                        step[segments++] = cols;
+                    }
+                    colSegment[cell] = segments - 1;
+                    length[segments - 1]++;
+                }
+            }
+        }
+        this.segmentStart = Arrays.copyOf(start, segments);
+        this.segmentStep = Arrays.copyOf(step, segments);
+        this.segmentLength = Arrays.copyOf(length, segments);
+        this.segmentFree = segmentLength.clone();
+
+        SplittableRandom random = new SplittableRandom();
+        this.laserKeys = new long[rows * cols];
+        this.blockedKeys = new long[rows * cols];
+        for (int cell = 0; cell < rows * cols; cell++) {
+            laserKeys[cell] = random.nextLong();
+            blockedKeys[cell] = random.nextLong();
+        }
+
+        // everything has to be looked at by the first propagation
+        this.dirtySegments = new long[(segments + 63) >>> 6];
+        this.dirtyPillars = new long[(numbered + 63) >>> 6];
+        for (int seg = 0; seg < segments; seg++) {
+            set(dirtySegments, seg);
+        }
+        for (int id = 0; id < numbered; id++) {
+            set(dirtyPillars, id);
+        }
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (board[row][col].equals("L")) {
+                    addLaser(row * cols + col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy a state.  The pillar layout is shared with the original.
+     *
+     * @param other the state to copy
+     */
+    public SafeState(SafeState other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.pillars = other.pillars;
+        this.pillarId = other.pillarId;
+        this.pillarCell = other.pillarCell;
+        this.pillarTarget = other.pillarTarget;
+        this.rowSegment = other.rowSegment;
+        this.colSegment = other.colSegment;
+        this.segmentStart = other.segmentStart;
+        this.segmentStep = other.segmentStep;
+        this.segmentLength = other.segmentLength;
+        this.laserKeys = other.laserKeys;
+        this.blockedKeys = other.blockedKeys;
+        this.hash = other.hash;
+        this.lasers = other.lasers.clone();
+        this.lit = other.lit.clone();
+        this.blocked = other.blocked.clone();
+        this.pillarLasers = other.pillarLasers.clone();
+        this.segmentFree = other.segmentFree.clone();
+        this.dirtySegments = other.dirtySegments.clone();
+        this.dirtyPillars = other.dirtyPillars.clone();
+        this.conflict = other.conflict;
+        this.dead = other.dead;
+    }
+
+    /**
+     * Start recording every change made to the state, so that it can be
+     * taken back with {@link #undo}.  A cell is lit, ruled out or given a
+     * laser at most once, so the trail stays within two entries per cell.
+     */
+    public void recordUndo() {
+        if (trail == null) {
+            trail = new int[2 * rows * cols + 2];
+        }
+    }
+
+    /**
+     * @return: position in the undo trail to hand back to undo
+     */
+    public int mark() {
+        return trailSize;
+    }
+
+    /**
+     * Take back every change made since mark() returned the given value.
+     * Changes have to be taken back in the reverse order they were made.
+     *
+     * @param mark: value of mark() before the changes
+     */
+    public void undo(int mark) {
+        while (trailSize > mark) {
+            int entry = trail[--trailSize];
+            int cell = entry >>> 2;
+            switch (entry & 3) {
+                case LIT:
+                    lit[cell >>> 6] &= ~(1L << cell);
+                    release(cell);
+                    break;
+                case BLOCKED:
+                    blocked[cell >>> 6] &= ~(1L << cell);
+                    hash ^= blockedKeys[cell];
+                    release(cell);
+                    break;
+                case LASER:
+                    lasers[cell >>> 6] &= ~(1L << cell);
+                    hash ^= laserKeys[cell];
+                    release(cell);
+                    countNeighbours(cell, -1);
+                    break;
+                default:
+                    if (cell == 0) {
+                        conflict = false;
+                    } else {
+                        dead = false;
+                    }
+            }
+        }
+    }
+
+    /**
+     * count a cell as free again once the change that took it is undone,
+     * if it was free before that change
+     * @param cell: cell index
+     */
+    private void release(int cell) {
+        if (isFree(cell)) {
+            segmentFree[rowSegment[cell]]++;
+            segmentFree[colSegment[cell]]++;
+        }
+    }
+
+    /**
+     * stop counting a free cell that is about to be lit, given a laser or
+     * ruled out, and mark what it touches for propagation
+     * @param cell: cell index
+     */
+    private void take(int cell) {
+        if (isFree(cell)) {
+            segmentFree[rowSegment[cell]]--;
+            segmentFree[colSegment[cell]]--;
+            set(dirtySegments, rowSegment[cell]);
+            set(dirtySegments, colSegment[cell]);
+            int row = cell / cols;
+            int col = cell % cols;
+            if (row > 0) {
+                touch(cell - cols);
+            }
+            if (row + 1 < rows) {
+                touch(cell + cols);
+            }
+            if (col + 1 < cols) {
+                touch(cell + 1);
+            }
+            if (col > 0) {
+                touch(cell - 1);
+            }
+        }
+    }
+
+    /**
+     * mark a cell for propagation if it is a numbered pillar
+     * @param cell: cell index
+     */
+    private void touch(int cell) {
+        int id = pillarId[cell];
+        if (id >= 0) {
+            set(dirtyPillars, id);
+        }
+    }
+
+    /**
+     * add a change to the undo trail if the state is recording
+     * @param cell: cell that changed
+     * @param kind: kind of change
+     */
+    private void record(int cell, int kind) {
+        if (trail != null) {
+            trail[trailSize++] = (cell << 2) | kind;
+        }
+    }
+
+    /**
+     * getter for the row dimensions of the safe
+     * @return: row dimensions
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * getter for the column dimensions of the safe
+     * @return: column dimensions
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * the cell index of a coordinate
+     * @param row: row of the cell
+     * @param col: column of the cell
+     * @return: row major index of the cell
+     */
+    public int cell(int row, int col) {
+        return row * cols + col;
+    }
+
+    /**
+     * @param cell: cell index
+     * @return: true if the cell holds a pillar
+     */
+    public boolean isPillar(int cell) {
+        return get(pillars, cell);
+    }
+
+    /**
+     * @param cell: cell index
+     * @return: true if the cell holds a laser
+     */
+    public boolean hasLaser(int cell) {
+        return get(lasers, cell);
+    }
+
+    /**
+     * @param cell: cell index
+     * @return: true if the cell is lit by a beam
+     */
+    public boolean isLit(int cell) {
+        return get(lit, cell);
+    }
+
+    /**
+     * @param cell: cell index
+     * @return: true if the cell is neither a pillar, a laser nor lit
+     */
+    public boolean isEmpty(int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        return ((pillars[word] | lasers[word] | lit[word]) & bit) == 0;
+    }
+
+    /**
+     * @param cell: cell index
+     * @return: true if the cell is empty and can still take a laser
+     */
+    public boolean isFree(int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        return ((pillars[word] | lasers[word] | lit[word] | blocked[word]) & bit) == 0;
+    }
+
+    /**
+     * @return: Zobrist hash of the lasers and the ruled out cells
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return: true if two lasers point at each other
+     */
+    public boolean hasConflict() {
+        return conflict;
+    }
+
+    /**
+     * the first cell that can still take a laser, starting at a cell
+     * @param from: first cell to look at
+     * @return: the free cell, or -1 if there is none
+     */
+    public int nextFree(int from) {
+        int size = rows * cols;
+        if (from >= size) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = ~(pillars[word] | lasers[word] | lit[word] | blocked[word]) & (-1L << from);
+        while (bits == 0) {
+            if (++word == pillars.length) {
+                return -1;
+            }
+            bits = ~(pillars[word] | lasers[word] | lit[word] | blocked[word]);
+        }
+        int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return cell < size ? cell : -1;
+    }
+
+    /**
+     * @return: true if at least one cell is still empty
+     */
+    public boolean hasEmptyCell() {
+        int last = pillars.length - 1;
+        for (int word = 0; word < last; word++) {
+            if ((pillars[word] | lasers[word] | lit[word]) != -1L) {
+                return true;
+            }
+        }
+        if (last < 0) {
+            return false;
+        }
+        int used = rows * cols - (last << 6);
+        long mask = used == 64 ? -1L : (1L << used) - 1;
+        return ((pillars[last] | lasers[last] | lit[last]) & mask) != mask;
+    }
+
+    /**
+     * @return: number of lasers in the safe
+     */
+    public int getLaserCount() {
+        int count = 0;
+        for (long word : lasers) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return: number of numbered pillars in the safe
+     */
+    public int getPillarCount() {
+        return pillarCell.length;
+    }
+
+    /**
+     * @param id: numbered pillar id
+     * @return: cell of the pillar
+     */
+    public int getPillarCell(int id) {
+        return pillarCell[id];
+    }
+
+    /**
+     * @param id: numbered pillar id
+     * @return: number of lasers the pillar needs
+     */
+    public int getPillarTarget(int id) {
+        return pillarTarget[id];
+    }
+
+    /**
+     * @param id: numbered pillar id
+     * @return: number of lasers next to the pillar
+     */
+    public int getPillarLasers(int id) {
+        return pillarLasers[id];
+    }
+
+    /**
+     * @param cell: cell index
+     * @return: id of the numbered pillar on the cell, or -1
+     */
+    public int getPillarId(int cell) {
+        return pillarId[cell];
+    }
+
+    /**
+     * counts the empty cells next to a cell
+     * @param cell: cell index
+     * @return: number of empty neighbours
+     */
+    public int getEmptyNeighbours(int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+        int counter = 0;
+        if (row > 0 && isEmpty(cell - cols)) {
+            counter++;
+        }
+        if (row + 1 < rows && isEmpty(cell + cols)) {
+            counter++;
+        }
+        if (col + 1 < cols && isEmpty(cell + 1)) {
+            counter++;
+        }
+        if (col > 0 && isEmpty(cell - 1)) {
+            counter++;
+        }
+        return counter;
+    }
+
+    /**
+     * Put a laser on a cell, light its four beams and update the pillars
+     * around it.  A beam stops at a pillar; running into another laser (or
+     * placing the laser on a lit cell) flags the state as conflicting.
+     *
+     * @param cell: cell index
+     */
+    public void addLaser(int cell) {
+        if (get(lit, cell) || get(lasers, cell)) {
+            setConflict();
+        }
+        take(cell);
+        set(lasers, cell);
+        hash ^= laserKeys[cell];
+        record(cell, LASER);
+        int row = cell / cols;
+        int col = cell % cols;
+        for (int c = col + 1; c < cols; c++) {
+            if (!beam(row * cols + c)) {
+                break;
+            }
+        }
+        for (int c = col - 1; c >= 0; c--) {
+            if (!beam(row * cols + c)) {
+                break;
+            }
+        }
+        for (int r = row + 1; r < rows; r++) {
+            if (!beam(r * cols + col)) {
+                break;
+            }
+        }
+        for (int r = row - 1; r >= 0; r--) {
+            if (!beam(r * cols + col)) {
+                break;
+            }
+        }
+        countNeighbours(cell, 1);
+    }
+
+    /**
+     * Rule an empty cell out for a laser.  It still has to be lit.
+     *
+     * @param cell: cell index
+     */
+    public void block(int cell) {
+        take(cell);
+        set(blocked, cell);
+        hash ^= blockedKeys[cell];
+        record(cell, BLOCKED);
+    }
+
+    /**
+     * light one cell of a beam
+     * @param cell: cell index
+     * @return: true if the beam keeps going
+     */
+    private boolean beam(int cell) {
+        if (get(pillars, cell)) {
+            return false;
+        }
+        if (get(lasers, cell)) {
+            setConflict();
+            return false;
+        }
+        if (!get(lit, cell)) {
+            take(cell);
+            set(lit, cell);
+            record(cell, LIT);
+        }
+        return true;
+    }
+
+    /**
+     * flag two lasers pointing at each other
+     */
+    private void setConflict() {
+        if (!conflict) {
+            conflict = true;
+            record(0, FLAG);
+        }
+    }
+
+    /**
+     * flag a pillar or cell that can't be satisfied any more
+     */
+    private void setDead() {
+        if (!dead) {
+            dead = true;
+            record(1, FLAG);
+        }
+    }
+
+    /**
+     * update the pillars around a laser that was added or taken back
+     * @param cell: cell of the laser
+     * @param delta: 1 when the laser is added, -1 when it is taken back
+     */
+    private void countNeighbours(int cell, int delta) {
+        int row = cell / cols;
+        int col = cell % cols;
+        if (row > 0) {
+            countLaser(cell - cols, delta);
+        }
+        if (row + 1 < rows) {
+            countLaser(cell + cols, delta);
+        }
+        if (col + 1 < cols) {
+            countLaser(cell + 1, delta);
+        }
+        if (col > 0) {
+            countLaser(cell - 1, delta);
+        }
+    }
+
+    /**
+     * count a laser next to a cell if it is a numbered pillar
+     * @param cell: cell index
+     * @param delta: 1 when a laser is added, -1 when it is taken back
+     */
+    private void countLaser(int cell, int delta) {
+        int id = pillarId[cell];
+        if (id >= 0) {
+            pillarLasers[id] += delta;
+            if (delta > 0) {
+                set(dirtyPillars, id);
+            }
+        }
+    }
+
+    /**
+     * checks wether the state can still lead to a solution: no two lasers
+     * point at each other, and the last propagation found no pillar or
+     * cell that can't be satisfied any more.  Changes made since the last
+     * propagate() are not looked at.
+     * @return: true if the state is valid
+     */
+    public boolean isValid() {
+        return !conflict && !dead;
+    }
+
+    /**
+     * Apply the moves that are forced by the board until nothing changes:
+     * <ul>
+     * <li>a pillar with as many free neighbours as missing lasers gets a
+     * laser on each of them</li>
+     * <li>a pillar that has all its lasers (a "0" pillar from the start)
+     * rules out its free neighbours</li>
+     * <li>an unlit cell that only one free cell can still light gets a
+     * laser on that cell</li>
+     * </ul>
+     * A pillar that can no longer reach its number, or an unlit cell that
+     * nothing can light, marks the state as dead.
+     *
+     * Only the pillars and segments changed since the last propagation
+     * are looked at.
+     *
+     * @return: false if the state is dead or has a conflict
+     */
+    public boolean propagate() {
+        while (!dead && !conflict) {
+            int id = pop(dirtyPillars);
+            if (id >= 0) {
+                propagatePillar(id);
+                continue;
+            }
+            int seg = pop(dirtySegments);
+            if (seg < 0) {
+                break;
+            }
+            propagateSegment(seg);
+        }
+        if (dead || conflict) {
+            Arrays.fill(dirtyPillars, 0);
+            Arrays.fill(dirtySegments, 0);
+        }
+        return !dead && !conflict;
+    }
+
+    /**
+     * look for unlit cells in a segment that one free cell or none can
+     * still light.  Such a cell has at most two free cells in each of its
+     * segments, so segments with more are skipped.
+     * @param seg: the segment
+     */
+    private void propagateSegment(int seg) {
+        if (segmentFree[seg] > 2) {
+            return;
+        }
+        int cell = segmentStart[seg];
+        for (int i = 0; i < segmentLength[seg] && !dead; i++, cell += segmentStep[seg]) {
+            if (isEmpty(cell)) {
+                int sources = getSources(cell);
+                if (sources == 0) {
+                    setDead();
+                } else if (sources == 1) {
+                    addLaser(findSource(cell));
+                }
+            }
+        }
+    }
+
+    /**
+     * apply the forced moves around one numbered pillar
+     * @param id: numbered pillar id
+     */
+    private void propagatePillar(int id) {
+        int cell = pillarCell[id];
+        int missing = pillarTarget[id] - pillarLasers[id];
+        int free = getFreeNeighbours(cell);
+        if (missing < 0 || missing > free) {
+            setDead();
+            return;
+        }
+        if (free == 0 || (missing != 0 && missing != free)) {
+            return;
+        }
+        int row = cell / cols;
+        int col = cell % cols;
+        if (row > 0) {
+            force(cell - cols, missing != 0);
+        }
+        if (row + 1 < rows) {
+            force(cell + cols, missing != 0);
+        }
+        if (col + 1 < cols) {
+            force(cell + 1, missing != 0);
+        }
+        if (col > 0) {
+            force(cell - 1, missing != 0);
+        }
+    }
+
+    /**
+     * give a free cell a laser or rule it out
+     * @param cell: cell index
+     * @param laser: true to add a laser, false to rule the cell out
+     */
+    private void force(int cell, boolean laser) {
+        if (isFree(cell)) {
+            if (laser) {
+                addLaser(cell);
+            } else {
+                block(cell);
+            }
+        }
+    }
+
+    /**
+     * counts the free cells next to a cell
+     * @param cell: cell index
+     * @return: number of neighbours that can still take a laser
+     */
+    public int getFreeNeighbours(int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+        int counter = 0;
+        if (row > 0 && isFree(cell - cols)) {
+            counter++;
+        }
+        if (row + 1 < rows && isFree(cell + cols)) {
+            counter++;
+        }
+        if (col + 1 < cols && isFree(cell + 1)) {
+            counter++;
+        }
+        if (col > 0 && isFree(cell - 1)) {
+            counter++;
+        }
+        return counter;
+    }
+
+    /**
+     * the first empty cell, starting at a cell
+     * @param from: first cell to look at
+     * @return: the empty cell, or -1 if there is none
+     */
+    public int nextEmpty(int from) {
+        int size = rows * cols;
+        if (from >= size) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = ~(pillars[word] | lasers[word] | lit[word]) & (-1L << from);
+        while (bits == 0) {
+            if (++word == pillars.length) {
+                return -1;
+            }
+            bits = ~(pillars[word] | lasers[word] | lit[word]);
+        }
+        int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return cell < size ? cell : -1;
+    }
+
+    /**
+     * counts the empty cells a laser on a cell would light, the cell
+     * itself included
+     * @param cell: cell index
+     * @return: number of empty cells
+     */
+    public int countLit(int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+        int counter = isEmpty(cell) ? 1 : 0;
+        for (int c = col + 1; c < cols && !isPillar(row * cols + c); c++) {
+            if (isEmpty(row * cols + c)) {
+                counter++;
+            }
+        }
+        for (int c = col - 1; c >= 0 && !isPillar(row * cols + c); c--) {
+            if (isEmpty(row * cols + c)) {
+                counter++;
+            }
+        }
+        for (int r = row + 1; r < rows && !isPillar(r * cols + col); r++) {
+            if (isEmpty(r * cols + col)) {
+                counter++;
+            }
+        }
+        for (int r = row - 1; r >= 0 && !isPillar(r * cols + col); r--) {
+            if (isEmpty(r * cols + col)) {
+                counter++;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * counts the free cells that could light an empty cell: the cell
+     * itself and the free cells it sees along its row and column
+     * @param cell: the empty cell
+     * @return: number of free cells
+     */
+    public int getSources(int cell) {
+        return segmentFree[rowSegment[cell]] + segmentFree[colSegment[cell]] - (isFree(cell) ? 1 : 0);
+    }
+
+    /**
+     * the free cell that could light an empty cell, when there is only one
+     * @param cell: the empty cell
+     * @return: the free cell, or -1
+     */
+    private int findSource(int cell) {
+        if (isFree(cell)) {
+            return cell;
+        }
+        int seg = segmentFree[rowSegment[cell]] > 0 ? rowSegment[cell] : colSegment[cell];
+        int source = segmentStart[seg];
+        for (int i = 0; i < segmentLength[seg]; i++, source += segmentStep[seg]) {
+            if (isFree(source)) {
+                return source;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Render the state in the format used by the model.
+     *
+     * @return: the board
+     */
+    public String[][] toBoard() {
+        String[][] board = new String[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                if (get(pillars, cell)) {
+                    int id = pillarId[cell];
+                    board[row][col] = id >= 0 ? NUMBERS[pillarTarget[id]] : "X";
+                } else if (get(lasers, cell)) {
+                    board[row][col] = "L";
+                } else if (get(lit, cell)) {
+                    board[row][col] = "*";
+                } else {
+                    board[row][col] = ".";
+                }
+            }
+        }
+        return board;
+    }
+
+    private static boolean get(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * clear and return the lowest bit of a bitset
+     * @param bits: the bitset
+     * @return: index of the bit, or -1 if none is set
+     */
+    private static int pop(long[] bits) {
+        for (int word = 0; word < bits.length; word++) {
+            if (bits[word] != 0) {
+                int bit = Long.numberOfTrailingZeros(bits[word]);
+                bits[word] &= bits[word] - 1;
+                return (word << 6) + bit;
+            }
+        }
+        return -1;
+    }
+}
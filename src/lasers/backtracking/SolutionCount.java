@@ -0,0 +1,110 @@
+package lasers.backtracking;
+
+import java.util.List;
+
+/**
+ * What counting the solutions of a safe came to: how many were found,
+ * whether that is all of them, and the first ones.  A count that stops
+ * as soon as it reaches its limit is enough to tell a safe with a unique
+ * solution from one with several.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SolutionCount {
+    public enum Verdict {
+        /** the whole tree was searched, there is no solution */
+        NONE,
+        /** the whole tree was searched, there is exactly one solution */
+        UNIQUE,
+        /** there are at least two solutions */
+        MULTIPLE,
+        /** the count was stopped before it could tell */
+        UNKNOWN
+    }
+
+    private final long count;
+    private final boolean limitReached;
+    private final SolveResult.Status stopped;
+    private final List<Configuration> solutions;
+    private final SolverStats stats;
+
+    /**
+     * @param count number of solutions found
+     * @param limitReached whether the count stopped because it reached its
+     *                     limit
+     * @param stopped BUDGET or CANCELLED if the count was stopped by its
+     *                options first, otherwise null
+     * @param solutions the first solutions found
+     * @param stats the counters of the search
+     */
+    public SolutionCount(long count, boolean limitReached, SolveResult.Status stopped,
+                         List<Configuration> solutions, SolverStats stats) {
+        this.count = count;
+        this.limitReached = limitReached;
+        this.stopped = stopped;
+        this.solutions = solutions;
+        this.stats = stats;
+    }
+
+    /**
+     * @return number of solutions found, all of them if isExact
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if the whole tree was searched, so the count is that of
+     * every solution
+     */
+    public boolean isExact() {
+        return !limitReached && stopped == null;
+    }
+
+    /**
+     * @return true if the count stopped because it reached its limit
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * @return BUDGET or CANCELLED if the options stopped the count, or null
+     */
+    public SolveResult.Status getStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return whether the safe has no, one or several solutions
+     */
+    public Verdict getVerdict() {
+        if (count >= 2) {
+            return Verdict.MULTIPLE;
+        } else if (!isExact()) {
+            return Verdict.UNKNOWN;
+        }
+        return count == 1 ? Verdict.UNIQUE : Verdict.NONE;
+    }
+
+    /**
+     * @return the first solutions found, at most two of them, in no
+     * particular order when the count ran in parallel
+     */
+    public List<Configuration> getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * @return the counters of the search
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return count + (isExact() ? "" : "+") + " solutions after " + stats.getNodes() + " nodes";
+    }
+}
@@ -0,0 +1,92 @@
+package lasers.backtracking;
+
+/**
+ * Limits on a single solve: a deadline, a budget of nodes and a
+ * cancellation token.  A solve that runs into one of them stops and
+ * reports it in its SolveResult instead of searching on.  Without any
+ * limit set, a solve runs until it finds a goal or proves there is none.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SolveOptions {
+    /** marks a limit that is not set */
+    private static final long NONE = -1;
+
+    /** time the solve may take in nanoseconds, counted from its start */
+    private long timeLimit = NONE;
+    /** System.nanoTime() by which the solve must be over */
+    private long deadline = NONE;
+    /** nodes the solve may expand */
+    private long nodeBudget = Long.MAX_VALUE;
+    private CancellationToken token;
+
+    /**
+     * Give the solve a time limit, counted from the moment it starts.
+     *
+     * @param millis milliseconds the solve may take
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis * 1_000_000;
+    }
+
+    /**
+     * Give the solve a deadline, for callers that share one deadline
+     * between several steps.
+     *
+     * @param nanoTime the System.nanoTime() by which the solve must stop
+     */
+    public void setDeadline(long nanoTime) {
+        this.deadline = nanoTime;
+    }
+
+    /**
+     * Limit the number of nodes the solve may expand.
+     *
+     * @param nodes the budget
+     */
+    public void setNodeBudget(long nodes) {
+        this.nodeBudget = nodes;
+    }
+
+    /**
+     * @return the node budget, Long.MAX_VALUE if there is none
+     */
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    /**
+     * Let another thread stop the solve.
+     *
+     * @param token the token, or null for none
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * @return the cancellation token, or null
+     */
+    public CancellationToken getCancellationToken() {
+        return token;
+    }
+
+    /**
+     * The deadline of a solve that starts now: the earliest of the deadline
+     * and the end of the time limit.
+     *
+     * @param start System.nanoTime() of the start of the solve
+     * @return the deadline, or Long.MAX_VALUE if the solve has none
+     */
+    long getDeadline(long start) {
+        long end = Long.MAX_VALUE;
+        if (timeLimit != NONE) {
+            end = start + timeLimit;
+        }
+        if (deadline != NONE && (end == Long.MAX_VALUE || deadline - end < 0)) {
+            end = deadline;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,65 @@
+package lasers.backtracking;
+
+import java.util.Optional;
+
+/**
+ * What a solve with SolveOptions came to: the solution if it found one,
+ * and otherwise whether the whole tree was searched or the search was
+ * stopped before, in which case a solution may still exist.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SolveResult {
+    public enum Status {
+        /** a solution was found */
+        FOUND,
+        /** the whole tree was searched, there is no solution */
+        NONE,
+        /** the deadline or the node budget ran out first */
+        BUDGET,
+        /** the solve was cancelled first */
+        CANCELLED
+    }
+
+    private final Status status;
+    private final Configuration solution;
+    private final SolverStats stats;
+
+    /**
+     * @param status how the solve ended
+     * @param solution the solution, or null unless status is FOUND
+     * @param stats the counters of the solve
+     */
+    public SolveResult(Status status, Configuration solution, SolverStats stats) {
+        this.status = status;
+        this.solution = solution;
+        this.stats = stats;
+    }
+
+    /**
+     * @return how the solve ended
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the solution, present only if the status is FOUND
+     */
+    public Optional<Configuration> getSolution() {
+        return Optional.ofNullable(solution);
+    }
+
+    /**
+     * @return the counters of the solve
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return status + " after " + stats.getNodes() + " nodes";
+    }
+}
@@ -0,0 +1,256 @@
+package lasers.backtracking;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Counters a backtracker keeps while it searches: how many nodes it
+ * expanded, how many successors they had and how many of those were not
+ * valid, both in total and for every depth of the tree, how deep it went
+ * and how long it took.  Counting is a few increments per node, so the
+ * backtrackers always do it.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SolverStats {
+    private long nodes;
+    private long successors;
+    private long rejected;
+    private int maxDepth;
+    /** the counters of every depth */
+    private long[] expandedAt = new long[16];
+    private long[] successorsAt = new long[16];
+    private long[] rejectedAt = new long[16];
+
+    /** whether the cpu time is that of the process instead of the thread */
+    private boolean processCpu;
+    private long wallStart;
+    private long cpuStart;
+    private long wallNanos;
+    private long cpuNanos;
+
+    /**
+     * Start the clocks.
+     *
+     * @param processCpu true to measure the cpu time of every thread of the
+     *                   process, for searches that run on several threads
+     */
+    public void start(boolean processCpu) {
+        this.processCpu = processCpu;
+        wallStart = System.nanoTime();
+        cpuStart = cpuTime();
+    }
+
+    /**
+     * Stop the clocks.
+     */
+    public void stop() {
+        wallNanos = System.nanoTime() - wallStart;
+        cpuNanos = Math.max(0, cpuTime() - cpuStart);
+    }
+
+    /**
+     * count a configuration the search reached
+     * @param depth: its depth, 0 for the starting configuration
+     */
+    public void visit(int depth) {
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    /**
+     * count a configuration whose successors were generated
+     * @param depth: its depth
+     * @param count: number of successors
+     */
+    public void expand(int depth, int count) {
+        if (depth >= expandedAt.length) {
+            grow(depth);
+        }
+        nodes++;
+        successors += count;
+        expandedAt[depth]++;
+        successorsAt[depth] += count;
+    }
+
+    /**
+     * count a successor that was not valid
+     * @param depth: depth of its parent
+     */
+    public void reject(int depth) {
+        rejected++;
+        rejectedAt[depth]++;
+    }
+
+    /**
+     * Add the counters of a search of another part of the tree, the clocks
+     * are left alone.
+     *
+     * @param other the counters to add
+     */
+    public void merge(SolverStats other) {
+        if (other.maxDepth >= expandedAt.length) {
+            grow(other.maxDepth);
+        }
+        nodes += other.nodes;
+        successors += other.successors;
+        rejected += other.rejected;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        for (int depth = 0; depth <= other.maxDepth && depth < other.expandedAt.length; depth++) {
+            expandedAt[depth] += other.expandedAt[depth];
+            successorsAt[depth] += other.successorsAt[depth];
+            rejectedAt[depth] += other.rejectedAt[depth];
+        }
+    }
+
+    /**
+     * @return: number of configurations whose successors were generated
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return: number of successors generated
+     */
+    public long getSuccessors() {
+        return successors;
+    }
+
+    /**
+     * @return: number of successors that were not valid
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return: depth of the deepest configuration reached
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param depth: a depth of the tree
+     * @return: number of configurations expanded at that depth
+     */
+    public long getExpanded(int depth) {
+        return depth < expandedAt.length ? expandedAt[depth] : 0;
+    }
+
+    /**
+     * @param depth: a depth of the tree
+     * @return: average number of successors of the configurations expanded
+     * at that depth, or 0 if there were none
+     */
+    public double getBranchingFactor(int depth) {
+        long expanded = getExpanded(depth);
+        return expanded == 0 ? 0 : (double) successorsAt[depth] / expanded;
+    }
+
+    /**
+     * @param depth: a depth of the tree
+     * @return: average number of valid successors of the configurations
+     * expanded at that depth, or 0 if there were none
+     */
+    public double getValidBranchingFactor(int depth) {
+        long expanded = getExpanded(depth);
+        return expanded == 0 ? 0 : (double) (successorsAt[depth] - rejectedAt[depth]) / expanded;
+    }
+
+    /**
+     * @return: wall clock time of the search in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return: cpu time of the search in nanoseconds, 0 if the JVM can't
+     * measure it
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * The counters as a JSON object, with one entry per depth in "depths".
+     *
+     * @return: the JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"nodes\":").append(nodes)
+                .append(",\"successors\":").append(successors)
+                .append(",\"rejected\":").append(rejected)
+                .append(",\"maxDepth\":").append(maxDepth)
+                .append(",\"wallMillis\":").append(wallNanos / 1e6)
+                .append(",\"cpuMillis\":").append(cpuNanos / 1e6)
+                .append(",\"depths\":[");
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            if (depth > 0) {
+                json.append(",");
+            }
+            json.append("{\"depth\":").append(depth)
+                    .append(",\"expanded\":").append(getExpanded(depth))
+                    .append(",\"successors\":").append(depth < successorsAt.length ? successorsAt[depth] : 0)
+                    .append(",\"rejected\":").append(depth < rejectedAt.length ? rejectedAt[depth] : 0)
+                    .append(",\"branchingFactor\":").append(getBranchingFactor(depth))
+                    .append(",\"validBranchingFactor\":").append(getValidBranchingFactor(depth))
+                    .append("}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * @return: a short report of the counters
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append("Nodes expanded: ").append(nodes).append("\n");
+        str.append("Successors generated: ").append(successors)
+                .append(" (").append(rejected).append(" not valid)\n");
+        str.append("Maximum depth: ").append(maxDepth).append("\n");
+        str.append(String.format("Wall time: %.3f ms, cpu time: %.3f ms%n", wallNanos / 1e6, cpuNanos / 1e6));
+        str.append("Valid successors per node at each depth:");
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            if (depth % 8 == 0) {
+                str.append("\n ");
+            }
+            str.append(String.format(" %d:%.2f", depth, getValidBranchingFactor(depth)));
+        }
+        return str.toString();
+    }
+
+    /**
+     * @return: cpu time of the thread, or of the process, in nanoseconds
+     */
+    private long cpuTime() {
+        if (processCpu) {
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean) {
+                return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            }
+            return 0;
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * make the counters of every depth up to a depth fit
+     * @param depth: the depth
+     */
+    private void grow(int depth) {
+        int length = Math.max(expandedAt.length * 2, depth + 1);
+        expandedAt = Arrays.copyOf(expandedAt, length);
+        successorsAt = Arrays.copyOf(successorsAt, length);
+        rejectedAt = Arrays.copyOf(rejectedAt, length);
+    }
+}
@@ -0,0 +1,139 @@
+package lasers.backtracking;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size table of configurations the backtracker already searched
+ * without finding a goal, keyed by their Zobrist hash.  Each hash has a
+ * single slot, and a new dead end simply replaces whatever was there, so
+ * the table never grows past the memory it was given.  It can be shared
+ * by the threads of a ParallelBacktracker.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class TranspositionTable {
+    /** hash of the dead end in each slot, 0 for an empty slot */
+    private final AtomicLongArray keys;
+    /** slot index mask, the number of slots is a power of two */
+    private final int mask;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a table that uses at most the given amount of memory.
+     *
+     * @param bytes memory for the slots, at least 8
+     */
+    public TranspositionTable(long bytes) {
+        long slots = Long.highestOneBit(Math.max(1, Math.min(bytes / 8, 1 << 30)));
+        this.keys = new AtomicLongArray((int) slots);
+        this.mask = (int) slots - 1;
+    }
+
+    /**
+     * the key stored for a hash; 0 marks an empty slot so it is moved
+     * @param hash: Zobrist hash
+     * @return: the key
+     */
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Was a configuration with this hash already found to be a dead end?
+     *
+     * @param hash Zobrist hash of the configuration
+     * @return true if it is a known dead end
+     */
+    public boolean isDead(long hash) {
+        probes.increment();
+        if (keys.get((int) hash & mask) == key(hash)) {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remember that a configuration with this hash is a dead end.
+     *
+     * @param hash Zobrist hash of the configuration
+     */
+    public void markDead(long hash) {
+        long old = keys.getAndSet((int) hash & mask, key(hash));
+        stores.increment();
+        if (old != 0 && old != key(hash)) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Forget every dead end and reset the counters.
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length(); i++) {
+            keys.set(i, 0);
+        }
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        evictions.reset();
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return keys.length();
+    }
+
+    /**
+     * @return the number of lookups
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return the number of lookups that found a dead end
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of dead ends stored
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return the number of dead ends replaced by another one
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of lookups that found a dead end
+     */
+    public double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0 : (double) getHits() / probes;
+    }
+
+    /**
+     * the usage report of the table
+     *
+     * @return: string representing
+     */
+    public String toString() {
+        return String.format("Transposition table: %d slots, %d probes, %d hits (%.1f%%), %d stores, %d evictions",
+                getCapacity(), getProbes(), getHits(), 100 * getHitRate(), getStores(), getEvictions());
+    }
+}
@@ -0,0 +1,274 @@
+package lasers.gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+import lasers.model.CellCode;
+import lasers.model.LasersModel;
+
+/**
+ * A board drawn on a canvas instead of a button per tile, for safes too
+ * large for a GridPane.  Only the tiles in view are drawn: a full drawing
+ * is done at most once a frame, when the view is panned, zoomed or
+ * resized, and the tiles that change in the model are drawn on their own.
+ * The work of a frame is therefore bounded by the size of the window and
+ * not by the size of the safe.  Dragging pans, the wheel zooms around the
+ * mouse, and a click adds or removes a laser like the buttons do.  Tiles
+ * smaller than IMAGE_TILE are drawn as a plain colour instead of an image.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class BoardCanvas extends Pane {
+    private static final double MIN_TILE = 4;
+    private static final double MAX_TILE = 96;
+    /** size of a tile when the safe fits the window at it */
+    private static final double DEFAULT_TILE = 40;
+    /** the smallest tile drawn with its image */
+    private static final double IMAGE_TILE = 12;
+    private static final double ZOOM = 1.25;
+    private static final double VIEW_W = 900;
+    private static final double VIEW_H = 650;
+    /** colour of every cell code, for the tiles too small for an image */
+    private static final Color[] COLORS = {Color.WHITE, Color.GRAY, Color.GRAY, Color.GRAY, Color.GRAY,
+            Color.GRAY, Color.BLACK, Color.rgb(255, 140, 0), Color.YELLOW};
+
+    private LasersModel model;
+    private final Canvas canvas = new Canvas();
+    private int rows;
+    private int cols;
+    /** size of a tile on the screen */
+    private double tile;
+    /** position of the view on the board, in pixels at the current size */
+    private double originX;
+    private double originY;
+    /** where the mouse was pressed, and where the view was then */
+    private double pressX;
+    private double pressY;
+    private double pressOriginX;
+    private double pressOriginY;
+    /** the tile a failed check marked red, errorRow is -1 if none */
+    private int errorRow = -1;
+    private int errorCol;
+    /** whether the whole view has to be drawn on the next frame */
+    private boolean repaint;
+    private final AnimationTimer frame = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            if (repaint) {
+                paint();
+            }
+        }
+    };
+
+    /**
+     * Create the canvas of a safe, zoomed so that the whole safe fits if
+     * it can.
+     *
+     * @param model: the model of the safe
+     */
+    public BoardCanvas(LasersModel model) {
+        getChildren().add(canvas);
+        setModel(model);
+
+        widthProperty().addListener(o -> resize());
+        heightProperty().addListener(o -> resize());
+        canvas.setOnMousePressed(e -> {
+            pressX = e.getX();
+            pressY = e.getY();
+            pressOriginX = originX;
+            pressOriginY = originY;
+        });
+        canvas.setOnMouseDragged(e -> {
+            originX = pressOriginX - (e.getX() - pressX);
+            originY = pressOriginY - (e.getY() - pressY);
+            requestPaint();
+        });
+        canvas.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.isStillSincePress()) {
+                click(e.getX(), e.getY());
+            }
+        });
+        canvas.setOnScroll(e -> {
+            if (e.getDeltaY() != 0) {
+                zoom(e.getDeltaY() > 0 ? ZOOM : 1 / ZOOM, e.getX(), e.getY());
+            }
+        });
+    }
+
+    /**
+     * method that shows the safe of another model, zoomed so that it fits
+     * if it can, from its top left corner
+     * @param model: the model of the safe
+     */
+    public void setModel(LasersModel model) {
+        this.model = model;
+        this.rows = model.getROW_DIM();
+        this.cols = model.getCOLUMN_DIM();
+        this.tile = Math.max(MIN_TILE, Math.min(DEFAULT_TILE, Math.min(VIEW_W / cols, VIEW_H / rows)));
+        originX = 0;
+        originY = 0;
+        errorRow = -1;
+        setPrefSize(Math.min(VIEW_W, cols * tile), Math.min(VIEW_H, rows * tile));
+        requestPaint();
+    }
+
+    /**
+     * method that draws the tiles that changed, if they are in view
+     * @param cells: the cells, each as row * columns + column
+     */
+    public void paintCells(int[] cells) {
+        if (repaint) {
+            // they will be drawn with the rest of the view
+            return;
+        }
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        for (int cell : cells) {
+            paintTile(gc, cell / cols, cell % cols);
+        }
+    }
+
+    /**
+     * method that marks the tile a check found wrong, until clearError
+     * @param row: row of the tile
+     * @param col: column of the tile
+     */
+    public void setError(int row, int col) {
+        clearError();
+        errorRow = row;
+        errorCol = col;
+        paintTile(canvas.getGraphicsContext2D(), row, col);
+    }
+
+    /**
+     * method that draws the tile marked by setError as it is again
+     */
+    public void clearError() {
+        if (errorRow >= 0) {
+            int row = errorRow;
+            errorRow = -1;
+            paintTile(canvas.getGraphicsContext2D(), row, errorCol);
+        }
+    }
+
+    /**
+     * draw the whole view on the next frame
+     */
+    private void requestPaint() {
+        if (!repaint) {
+            repaint = true;
+            frame.start();
+        }
+    }
+
+    /**
+     * make the canvas the size of the pane
+     */
+    private void resize() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        requestPaint();
+    }
+
+    /**
+     * change the size of the tiles, keeping the point under the mouse in place
+     * @param factor: how much larger the tiles get
+     * @param x: where the mouse is on the canvas
+     * @param y: where the mouse is on the canvas
+     */
+    private void zoom(double factor, double x, double y) {
+        double size = Math.max(MIN_TILE, Math.min(MAX_TILE, tile * factor));
+        originX = (originX + x) / tile * size - x;
+        originY = (originY + y) / tile * size - y;
+        tile = size;
+        requestPaint();
+    }
+
+    /**
+     * add a laser on the tile that was clicked, or remove the one there
+     * @param x: where the click was on the canvas
+     * @param y: where the click was on the canvas
+     */
+    private void click(double x, double y) {
+        int row = (int) Math.floor((originY + y) / tile);
+        int col = (int) Math.floor((originX + x) / tile);
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return;
+        }
+        if (!model.getValue(row, col).equals("L")) {
+            model.add(row, col);
+        } else {
+            model.remove(row, col);
+        }
+    }
+
+    /**
+     * keep the view on the board
+     */
+    private void clampOrigin() {
+        originX = Math.max(0, Math.min(originX, cols * tile - canvas.getWidth()));
+        originY = Math.max(0, Math.min(originY, rows * tile - canvas.getHeight()));
+    }
+
+    /**
+     * draw every tile in view
+     */
+    private void paint() {
+        repaint = false;
+        clampOrigin();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFill(Color.LIGHTGRAY);
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        int firstRow = (int) (originY / tile);
+        int firstCol = (int) (originX / tile);
+        int lastRow = Math.min(rows - 1, (int) ((originY + canvas.getHeight()) / tile));
+        int lastCol = Math.min(cols - 1, (int) ((originX + canvas.getWidth()) / tile));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                drawTile(gc, row, col);
+            }
+        }
+    }
+
+    /**
+     * draw a tile if it is in view
+     * @param gc: where to draw
+     * @param row: row of the tile
+     * @param col: column of the tile
+     */
+    private void paintTile(GraphicsContext gc, int row, int col) {
+        double x = col * tile - originX;
+        double y = row * tile - originY;
+        if (x + tile > 0 && x < canvas.getWidth() && y + tile > 0 && y < canvas.getHeight()) {
+            drawTile(gc, row, col);
+        }
+    }
+
+    /**
+     * draw a tile, leaving a line of the background around it
+     * @param gc: where to draw
+     * @param row: row of the tile
+     * @param col: column of the tile
+     */
+    private void drawTile(GraphicsContext gc, int row, int col) {
+        double x = col * tile - originX;
+        double y = row * tile - originY;
+        double size = tile - 1;
+        String value = model.getValue(row, col);
+        boolean error = row == errorRow && col == errorCol;
+        if (tile < IMAGE_TILE) {
+            gc.setFill(error ? Color.RED : COLORS[CellCode.encode(value)]);
+            gc.fillRect(x, y, size, size);
+            return;
+        }
+        gc.drawImage(error ? TileImages.error() : TileImages.backgroundImage(value), x, y, size, size);
+        Image image = error && value.equals(".") ? TileImages.error() : TileImages.tile(value);
+        gc.drawImage(image, x, y, size, size);
+    }
+}
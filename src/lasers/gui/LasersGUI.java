@@ -1,5 +1,8 @@
 package lasers.gui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -15,15 +18,21 @@ import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import lasers.backtracking.Backtracker;
 import lasers.backtracking.Configuration;
+import lasers.backtracking.IterativeBacktracker;
 import lasers.backtracking.SafeConfig;
 import lasers.backtracking.SafeSolver;
 import lasers.model.*;
@@ -45,7 +54,21 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
     private Button solve;
     private Button restart;
     private Button load;
-    private Button[][] buttonsArray;
+    private Button cancel;
+    private GridPane grid;
+    private TileButton[][] buttonsArray;
+    /** the board of a safe with more than CANVAS_CELLS cells, else null */
+    private BoardCanvas canvas;
+    /** the grid or the canvas, whichever shows the board */
+    private Region board;
+    /** the window, which is built once and then kept for every safe */
+    private Stage stage;
+    private BorderPane pane;
+    /** safes with more cells are drawn on a canvas instead of buttons */
+    private final static int CANVAS_CELLS = 1000;
+    /** the tile the last failed check marked red, errorRow is -1 if none */
+    private int errorRow = -1;
+    private int errorCol;
     private final static int BUTTON_W = 75;
     private final static int BUTTON_L = 25;
 
@@ -54,6 +77,27 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
     private static boolean status = true;
     private Label topLabel;
 
+    /** runs the searches of Solve and Hint so the window keeps responding */
+    private final ExecutorService solver = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "lasers-solver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** the backtracker of the search in progress, or null */
+    private Backtracker running;
+
+    /**
+     * A search that runs on the solver thread.
+     */
+    private interface SolverJob {
+        /**
+         * @param bt: the backtracker to search with
+         * @return: the solution found, or null
+         * @throws FileNotFoundException if the safe file is gone
+         */
+        String[][] run(Backtracker bt) throws FileNotFoundException;
+    }
+
     /**
      * method that initializes the gui
      */
@@ -64,13 +108,14 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
         try {
             Parameters params = getParameters();
             filename = params.getRaw().get(0);
+            TileImages.preload();
             this.model = new LasersModel(filename);
-        } catch (FileNotFoundException fnfe) {
-            System.out.println(fnfe.getMessage());
+            this.model.addObserver(this);
+            model.createBoard();
+        } catch (FileNotFoundException | SafeFormatException e) {
+            System.out.println(e.getMessage());
             System.exit(-1);
         }
-        this.model.addObserver(this);
-        model.createBoard();
     }
 
     /**
@@ -121,37 +166,112 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
     }
 
     /**
-     * method that makes the gridpane where the buttons will be
+     * method that shows the board of the model in what is already there:
+     * the gridpane, or a BoardCanvas if the safe has more than CANVAS_CELLS
+     * cells.  The buttons the gridpane has are kept and only the tiles
+     * whose value is not the one shown are drawn again.
+     * @return: the gridpane or the canvas
+     */
+    public Region makeBoard(){
+        errorRow = -1;
+        if ((long) model.getROW_DIM() * model.getCOLUMN_DIM() > CANVAS_CELLS) {
+            if (canvas == null) {
+                canvas = new BoardCanvas(model);
+            } else {
+                canvas.setModel(model);
+            }
+            board = canvas;
+        } else {
+            board = makeGridPane();
+        }
+        return board;
+    }
+
+    /**
+     * method that makes the gridpane where the buttons will be, or resizes
+     * it for the safe of the model if it was made already
      * @return: gridpane of TileButtons
      */
     public GridPane makeGridPane(){
-        buttonsArray = new TileButton[model.getROW_DIM()][model.getROW_DIM()];
-        GridPane grid = new GridPane();
-        grid.setPrefWidth(500);
+        if (grid == null) {
+            grid = new GridPane();
+            grid.setPrefWidth(500);
+            grid.setHgap(5);
+            grid.setVgap(5);
+            grid.setAlignment(Pos.CENTER);
+        }
+        TileButton[][] buttons = new TileButton[model.getROW_DIM()][model.getCOLUMN_DIM()];
         for (int row=0; row<model.getROW_DIM(); ++row) {
             for (int col=0; col<model.getCOLUMN_DIM(); ++col) {
-                TileButton button = new TileButton(model.getValue(row, col));
-                buttonsArray[row][col] = button;
-                // Adding buttons to the grid
-                grid.add(button, col, row);
-                int finalCol = col;
-                int finalRow = row;
-                button.setOnAction(e->{
-                    if(!model.getValue(finalRow, finalCol).equals("L")){
-                        model.add(finalRow, finalCol);
-                    }
-                    else{
-                        model.remove(finalRow, finalCol);
+                TileButton button = null;
+                if (buttonsArray != null && row < buttonsArray.length && col < buttonsArray[row].length) {
+                    button = buttonsArray[row][col];
+                    buttonsArray[row][col] = null;
+                }
+                if (button == null) {
+                    button = makeTileButton(row, col);
+                    // Adding buttons to the grid
+                    grid.add(button, col, row);
+                } else {
+                    button.setTile(model.getValue(row, col));
+                }
+                buttons[row][col] = button;
+            }
+        }
+        // the buttons outside of the new safe are the ones left
+        if (buttonsArray != null) {
+            List<TileButton> unused = new ArrayList<>();
+            for (TileButton[] row : buttonsArray) {
+                for (TileButton button : row) {
+                    if (button != null) {
+                        unused.add(button);
                     }
-                });
+                }
             }
+            grid.getChildren().removeAll(unused);
         }
-        grid.setHgap(5);
-        grid.setVgap(5);
-        grid.setAlignment(Pos.CENTER);
+        buttonsArray = buttons;
         return grid;
     }
 
+    /**
+     * method that makes the button of a tile, which adds or removes a laser
+     * @param row: row of the tile
+     * @param col: column of the tile
+     * @return: the button
+     */
+    private TileButton makeTileButton(int row, int col) {
+        TileButton button = new TileButton(model.getValue(row, col));
+        button.setOnAction(e->{
+            if(!model.getValue(row, col).equals("L")){
+                model.add(row, col);
+            }
+            else{
+                model.remove(row, col);
+            }
+        });
+        return button;
+    }
+
+    /**
+     * show a new model in the window that is there, making its board.  If
+     * the board can't be read the model that was shown stays
+     * @param next: the model, whose board is not created yet
+     * @throws SafeFormatException if a row of the file is not a row of the safe
+     */
+    private void showModel(LasersModel next) {
+        LasersModel previous = model;
+        model = next;
+        model.addObserver(this);
+        try {
+            model.createBoard();
+        } catch (SafeFormatException ex) {
+            // the board is only shown once it is read
+            model = previous;
+            throw ex;
+        }
+    }
+
     /**
      * method that makes the hbox of the buttons that will be used to check the board, display
      * solve or give a hint of the next move in the board
@@ -176,7 +296,16 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
         load = new Button("Load");
         load.setPrefSize(BUTTON_W, BUTTON_L);
 
-        hBox.getChildren().addAll(check, hint, solve, restart, load);
+        cancel = new Button("Cancel");
+        cancel.setPrefSize(BUTTON_W, BUTTON_L);
+        cancel.setDisable(true);
+        cancel.setOnAction(e -> {
+            if (running != null) {
+                running.cancel();
+            }
+        });
+
+        hBox.getChildren().addAll(check, hint, solve, restart, load, cancel);
         hBox.setAlignment(Pos.CENTER);
         hBox.setSpacing(15);
 
@@ -188,8 +317,9 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
      * @param stage: stage where the application will run
      */
     public void Layout (Stage stage){
-        BorderPane pane = new BorderPane();
-        pane.setCenter(makeGridPane());
+        this.stage = stage;
+        pane = new BorderPane();
+        pane.setCenter(makeBoard());
 
         BorderPane labelPane = new BorderPane();
         topLabel = new Label(filename + " loaded");
@@ -206,63 +336,123 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
 
         load.setOnAction(e -> {
             File selectedFile = fileChooser.showOpenDialog(stage);
-            filename = selectedFile.getAbsolutePath();
+            if (selectedFile == null) {
+                return;
+            }
+            String selected = selectedFile.getAbsolutePath();
             try {
-                this.model = new LasersModel(filename);
+                showModel(new LasersModel(selected));
             } catch (FileNotFoundException fnfe) {
                 System.out.println(fnfe.getMessage());
                 System.exit(-1);
+            } catch (SafeFormatException sfe) {
+                topLabel.setText(sfe.getMessage());
+                return;
             }
-            this.model.addObserver(this);
-            model.createBoard();
-            try {
-                start(stage);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
+            filename = selected;
+            topLabel.setText(filename + " loaded");
         });
 
-        solve.setOnAction(e-> {
-            try {
-                model.solve(filename);
-                start(stage);
-                model.solve(filename);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
-        });
+        solve.setOnAction(e -> runInBackground("Solving", bt -> LasersModel.getSolution(filename, bt),
+                solution -> model.showSolution(filename, solution)));
 
-        hint.setOnAction(e -> {
-            try {
-                Configuration config = model.hint(filename);
-                if (config != null){
-                    this.model = ((SafeConfig)config).getModel();
-                }
-                start(stage);
-            } catch (FileNotFoundException ex) {
-                ex.printStackTrace();
-            }
-        });
+        hint.setOnAction(e -> runInBackground("Looking for a hint", bt -> model.findHint(filename, bt),
+                solution -> model.showHint(solution)));
 
         restart.setOnAction(e -> {
             try {
-                this.model = new LasersModel(filename);
+                showModel(new LasersModel(filename));
             } catch (FileNotFoundException fnfe) {
                 System.out.println(fnfe.getMessage());
                 System.exit(-1);
+            } catch (SafeFormatException sfe) {
+                topLabel.setText(sfe.getMessage());
+                return;
             }
-            this.model.addObserver(this);
-            model.createBoard();
+            topLabel.setText(filename + " has been reset.");
+        });
+
+        Scene scene = new Scene(pane);
+        stage.setScene(scene);
+    }
+
+    /**
+     * Run a search on the solver thread.  The board and the buttons are
+     * disabled until it is over, except Cancel, and the label shows how
+     * many nodes the search went through so far.  The result is given to
+     * done on the JavaFX thread, unless the search was cancelled or failed,
+     * in which case the label says so.  Either way the window is usable
+     * again once the search is over.
+     *
+     * @param task: what the search is doing, for the label
+     * @param job: the search
+     * @param done: what to do with the solution found, which may be null
+     */
+    private void runInBackground(String task, SolverJob job, Consumer<String[][]> done) {
+        Backtracker bt = new IterativeBacktracker(false);
+        running = bt;
+        setBusy(true);
+        topLabel.setText(task + "...");
+        Timeline progress = new Timeline(new KeyFrame(Duration.millis(100), e ->
+                topLabel.setText(task + "... " + bt.getProgress() + " nodes searched")));
+        progress.setCycleCount(Animation.INDEFINITE);
+        progress.play();
+
+        solver.execute(() -> {
+            String[][] found = null;
+            // stays null only if the search returned
+            String failure = task + " failed.";
             try {
-                start(stage);
-                topLabel.setText(filename + " has been reset.");
+                found = job.run(bt);
+                failure = null;
+            } catch (FileNotFoundException | SafeFormatException ex) {
+                failure = task + " failed: " + ex.getMessage();
             } catch (Exception ex) {
                 ex.printStackTrace();
+                failure = task + " failed: " + ex;
+            } finally {
+                String[][] solution = found;
+                String error = failure;
+                Platform.runLater(() -> {
+                    progress.stop();
+                    running = null;
+                    setBusy(false);
+                    if (bt.isCancelled()) {
+                        topLabel.setText(task + " cancelled.");
+                    } else if (error != null) {
+                        topLabel.setText(error);
+                    } else {
+                        done.accept(solution);
+                    }
+                });
             }
         });
+    }
 
-        Scene scene = new Scene(pane);
-        stage.setScene(scene);
+    /**
+     * disable everything that could change the board, and enable Cancel,
+     * while a search runs
+     * @param busy: whether a search is running
+     */
+    private void setBusy(boolean busy) {
+        board.setDisable(busy);
+        check.setDisable(busy);
+        hint.setDisable(busy);
+        solve.setDisable(busy);
+        restart.setDisable(busy);
+        load.setDisable(busy);
+        cancel.setDisable(!busy);
+    }
+
+    /**
+     * Stop the search in progress, if any, when the application closes.
+     */
+    @Override
+    public void stop() {
+        if (running != null) {
+            running.cancel();
+        }
+        solver.shutdownNow();
     }
 
     /**
@@ -295,47 +485,48 @@ public class LasersGUI extends Application implements Observer<LasersModel, Mode
     @Override
     public void update(LasersModel model, ModelData data) {
         if(data.getAction().equals(ModelData.Action.CREATEBOARD)){
-            topLabel = new Label();
+            if (topLabel == null) {
+                // the window is made by start, with the board as it is
+                return;
+            }
+            Region shown = board;
+            if (makeBoard() != shown) {
+                pane.setCenter(board);
+            }
+            stage.sizeToScene();
         }
-        else if(data.getAction().equals(ModelData.Action.VERIFYERROR)){
-            if(model.getValue(data.getRow(),data.getCol()).equals(".")){
-                buttonsArray[data.getRow()][data.getCol()].setGraphic(new ImageView(new Image(getClass().getResourceAsStream(
-                       "resources/red.png"))));
+        else if (board == canvas) {
+            canvas.clearError();
+            canvas.paintCells(data.getChangedCells());
+            if(data.getAction().equals(ModelData.Action.VERIFYERROR)){
+                canvas.setError(data.getRow(), data.getCol());
             }
-            setButtonBackground(buttonsArray[data.getRow()][data.getCol()], "red.png");
         }
-        else if(data.getAction().equals(ModelData.Action.ADD) || data.getAction().equals(ModelData.Action.REMOVE)){
-            for (int row=0; row<model.getROW_DIM(); ++row) {
-                for (int col=0; col<model.getCOLUMN_DIM(); ++col) {
-                    if(!model.getValue(row,col).equals("L")) {
-                        if (model.getValue(row,col).equals(".")) {
-                            TileButton button = new TileButton(model.getValue(row, col));
-                            buttonsArray[row][col].setGraphic(new ImageView(button.getHashMap().get(model.getValue(row, col))));
-                        }
-                        setButtonBackground(buttonsArray[row][col],"white.png");
-                    }
-                    else {
-                        setButtonBackground(buttonsArray[row][col],"yellow.png");
-                    }
-                }
+        else {
+            // the tile a failed check marked goes back to normal first
+            if (errorRow >= 0) {
+                paintTile(errorRow, errorCol);
+                errorRow = -1;
             }
-
-            for (int row=0; row<model.getROW_DIM(); ++row){
-                TileButton button = new TileButton(model.getValue(row, data.getCol()));
-                buttonsArray[row][data.getCol()].setGraphic(new ImageView(button.getHashMap().get(model.getValue(row,data.getCol()))));
-                if(model.getValue(row,data.getCol()).equals("L")){
-                    setButtonBackground(buttonsArray[row][data.getCol()],"yellow.png");
-                }
+            int cols = model.getCOLUMN_DIM();
+            for (int cell : data.getChangedCells()) {
+                paintTile(cell / cols, cell % cols);
             }
-
-            for (int col=0; col<model.getCOLUMN_DIM(); ++col){
-                TileButton button = new TileButton(model.getValue(data.getRow(), col));
-                buttonsArray[data.getRow()][col].setGraphic(new ImageView(button.getHashMap().get(model.getValue(data.getRow(),col))));
-                if(model.getValue(data.getRow(),col).equals("L")){
-                    setButtonBackground(buttonsArray[data.getRow()][col],"yellow.png");
-                }
+            if(data.getAction().equals(ModelData.Action.VERIFYERROR)){
+                errorRow = data.getRow();
+                errorCol = data.getCol();
+                buttonsArray[errorRow][errorCol].setError(model.getValue(errorRow, errorCol).equals("."));
             }
         }
         topLabel.setText(data.getMessage());
     }
+
+    /**
+     * draw a tile again for the value it has in the model
+     * @param row: row of the tile
+     * @param col: column of the tile
+     */
+    private void paintTile(int row, int col) {
+        buttonsArray[row][col].setTile(model.getValue(row, col));
+    }
 }
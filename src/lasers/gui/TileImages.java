@@ -0,0 +1,115 @@
+package lasers.gui;
+
+import javafx.scene.image.Image;
+import javafx.scene.layout.*;
+
+import lasers.model.CellCode;
+
+/**
+ * The images of the tiles, decoded once for the whole application and
+ * shared by every TileButton.  The image of a cell is looked up by its
+ * CellCode code.  preload decodes them on a thread of their own while
+ * the model is created; whatever asks for an image before that is done
+ * waits for it.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+final class TileImages {
+    /** the file of every cell code */
+    private static final String[] FILES = {"white.png", "pillar0.png", "pillar1.png", "pillar2.png",
+            "pillar3.png", "pillar4.png", "pillarX.png", "laser.png", "beam.png"};
+    /** backgrounds of a tile, after the images of the cell codes */
+    private static final int WHITE = CellCode.EMPTY;
+    private static final int YELLOW = FILES.length;
+    private static final int RED = FILES.length + 1;
+
+    private static Image[] images;
+    private static Background[] backgrounds;
+
+    private TileImages() {
+    }
+
+    /**
+     * start decoding the images in the background
+     */
+    static void preload() {
+        Thread thread = new Thread(TileImages::load, "lasers-images");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param cell: a cell of the board, as the model has it
+     * @return: the image of the cell
+     */
+    static Image tile(String cell) {
+        return load()[CellCode.encode(cell)];
+    }
+
+    /**
+     * @return: the image of an empty tile a check found wrong
+     */
+    static Image error() {
+        return load()[RED];
+    }
+
+    /**
+     * @param cell: a cell of the board, as the model has it
+     * @return: the background of the tile, yellow for a laser and white
+     * for everything else
+     */
+    static Background background(String cell) {
+        load();
+        return backgrounds[cell.equals("L") ? YELLOW : WHITE];
+    }
+
+    /**
+     * @param cell: a cell of the board, as the model has it
+     * @return: the image of the background of the tile
+     */
+    static Image backgroundImage(String cell) {
+        return load()[cell.equals("L") ? YELLOW : WHITE];
+    }
+
+    /**
+     * @return: the background of a tile a check found wrong
+     */
+    static Background errorBackground() {
+        load();
+        return backgrounds[RED];
+    }
+
+    /**
+     * decode the images, if it was not done yet
+     * @return: the images, by cell code and then yellow and red
+     */
+    private static synchronized Image[] load() {
+        if (images == null) {
+            Image[] loaded = new Image[FILES.length + 2];
+            for (int code = 0; code < FILES.length; code++) {
+                loaded[code] = read(FILES[code]);
+            }
+            loaded[YELLOW] = read("yellow.png");
+            loaded[RED] = read("red.png");
+            Background[] painted = new Background[loaded.length];
+            for (int i : new int[]{WHITE, YELLOW, RED}) {
+                painted[i] = new Background(new BackgroundImage(loaded[i], BackgroundRepeat.NO_REPEAT,
+                        BackgroundRepeat.NO_REPEAT,
+                        BackgroundPosition.CENTER,
+                        BackgroundSize.DEFAULT));
+            }
+            backgrounds = painted;
+            images = loaded;
+        }
+        return images;
+    }
+
+    /**
+     * @param name: name of an image in the resources subdirectory
+     * @return: the image
+     */
+    private static Image read(String name) {
+        return new Image(TileImages.class.getResourceAsStream("resources/" + name));
+    }
+}
@@ -0,0 +1,70 @@
+package lasers.model;
+
+/**
+ * The 4-bit codes the cells of a safe are stored as in a SafeCorpus.
+ * Decoding gives back the same strings the model uses for its board.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public final class CellCode {
+    public static final int EMPTY = 0;
+    /** codes 1 to 5 are the pillars numbered 0 to 4 */
+    public static final int NUMBERED = 1;
+    public static final int PILLAR = 6;
+    public static final int LASER = 7;
+    public static final int BEAM = 8;
+
+    /** the cell of every code */
+    private static final String[] CELLS = {".", "0", "1", "2", "3", "4", "X", "L", "*"};
+
+    private CellCode() {
+    }
+
+    /**
+     * @param cell: a cell of a board, as the model has it
+     * @return: its code
+     * @throws IllegalArgumentException if it is not a cell of a safe
+     */
+    public static int encode(String cell) {
+        if (cell.length() != 1) {
+            throw new IllegalArgumentException("not a cell of a safe: " + cell);
+        }
+        return encode(cell.charAt(0));
+    }
+
+    /**
+     * @param cell: a cell of a board, as a character of a safe file
+     * @return: its code
+     * @throws IllegalArgumentException if it is not a cell of a safe
+     */
+    public static int encode(char cell) {
+        switch (cell) {
+            case '.':
+                return EMPTY;
+            case 'X':
+                return PILLAR;
+            case 'L':
+                return LASER;
+            case '*':
+                return BEAM;
+            default:
+                if (cell >= '0' && cell <= '4') {
+                    return NUMBERED + (cell - '0');
+                }
+                throw new IllegalArgumentException("not a cell of a safe: " + cell);
+        }
+    }
+
+    /**
+     * @param code: the code of a cell
+     * @return: the cell, as the model has it
+     * @throws IllegalArgumentException if it is not the code of a cell
+     */
+    public static String decode(int code) {
+        if (code < 0 || code >= CELLS.length) {
+            throw new IllegalArgumentException("not a cell code: " + code);
+        }
+        return CELLS[code];
+    }
+}
@@ -0,0 +1,65 @@
+package lasers.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts safe files in the text format into a SafeCorpus.  Every
+ * argument after the corpus is a safe file or a directory whose files
+ * are all converted, in the order of their names.  Files that are not
+ * safes, such as the PTUI scripts in src/tests, are skipped.
+ *
+ * Usage: java CorpusConverter out.corpus safe-or-dir...
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class CorpusConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java CorpusConverter out.corpus safe-or-dir...");
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> paths = Files.list(path)) {
+                    files.addAll(paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        // every safe is written as soon as it is read, so only one is in memory
+        int written;
+        try (SafeCorpus.Writer corpus = new SafeCorpus.Writer(Paths.get(args[0]), files.size())) {
+            for (Path file : files) {
+                String[][] board;
+                try {
+                    LasersModel model = new LasersModel(file.toString());
+                    model.createBoard();
+                    board = model.getBoard();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Skipping " + file + ": " + e);
+                    continue;
+                }
+                try {
+                    corpus.add(board);
+                } catch (IllegalArgumentException e) {
+                    // a cell with no code, which leaves the corpus as it was
+                    System.err.println("Skipping " + file + ": " + e);
+                }
+            }
+            written = corpus.size();
+        }
+        System.out.println(written + " safes written to " + args[0]);
+    }
+}
@@ -2,6 +2,8 @@ package lasers.model;
 
 import lasers.backtracking.Backtracker;
 import lasers.backtracking.Configuration;
+import lasers.backtracking.IterativeBacktracker;
+import lasers.backtracking.ParallelBacktracker;
 import lasers.backtracking.SafeConfig;
 
 import java.io.File;
@@ -23,25 +25,73 @@ public class LasersModel {
     private int ROW_DIM;
     /** the column dimensions of the safe */
     private int COLUMN_DIM;
-    /** scanner to read the file */
-    private Scanner scanner;
+    /** reads the rows of the file, until createBoard is called */
+    private SafeParser parser;
     /** the observers who are registered with this model */
     private List<Observer<LasersModel, ModelData>> observers;
+    /** updates held back by the batch in progress, or null */
+    private List<ModelData> pending;
+    /** number of batches begun and not committed yet */
+    private int batches;
+    /** cells changed since the last update was sent, as row * COLUMN_DIM + col */
+    private int[] changed = new int[16];
+    /** the value each of those cells had before it changed */
+    private String[] changedFrom = new String[16];
+    private int changedCount;
+    /** one bit for every cell, set for the cells in changed */
+    private long[] changedMarks;
+    /**
+     * number of lasers whose beam reaches every cell, as row * COLUMN_DIM +
+     * col, or null until add or remove need it.  A tile is lit when it is
+     * above zero.  Beams go through lasers, which makes no difference to
+     * what is lit, so add and remove only walk the row and the column of
+     * their laser.
+     */
+    private int[] coverage;
+    /** the rows and columns a beam goes along */
+    private static final int[][] DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
     /** HashSet of the list of numbered pillars */
     HashSet<String> numbers = new HashSet<>(Arrays.asList("0", "1", "2", "3", "4"));
+    /** number of safes whose solution is kept */
+    private static final int SOLUTION_CACHE_SIZE = 16;
+    /** solutions of the safes solved so far by file, least recently used first */
+    private static final Map<String, CachedSolution> solutions = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedSolution>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedSolution> eldest) {
+                    return size() > SOLUTION_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * The solution of a safe file, with what the file looked like when it
+     * was solved so that a changed file is solved again.
+     */
+    private static class CachedSolution {
+        private final long modified;
+        private final long length;
+        /** the solved board, or null if the safe has no solution */
+        private final String[][] board;
+
+        CachedSolution(long modified, long length, String[][] board) {
+            this.modified = modified;
+            this.length = length;
+            this.board = board;
+        }
+    }
 
     /**
      * constructor for the LasersModel that reads through a file at first
      * @param filename: filename of the safe that we will use
      * @throws FileNotFoundException if file doesn't exist
+     * @throws SafeFormatException if the first line is not the dimensions
      */
     public LasersModel(String filename) throws FileNotFoundException {
         this.observers = new LinkedList<>();
-        scanner = new Scanner(new File(filename));
+        parser = new SafeParser(filename);
 
-        String[] dims = scanner.nextLine().split(" ");
-        this.ROW_DIM = Integer.parseInt(dims[0]);
-        this.COLUMN_DIM = Integer.parseInt(dims[1]);
+        this.ROW_DIM = parser.getRows();
+        this.COLUMN_DIM = parser.getCols();
 
         this.board = new String[ROW_DIM][COLUMN_DIM];
     }
@@ -74,10 +124,62 @@ public class LasersModel {
      * @param data optional data the model can send to the view
      */
     private void notifyObservers(ModelData data){
+        if (pending != null) {
+            // the changes of a batch are all sent with its update
+            pending.add(data);
+            return;
+        }
+        data.setChangedCells(takeChanges());
+        send(data);
+    }
+
+    /**
+     * send an update to the observers as it is
+     * @param data: the update
+     */
+    private void send(ModelData data){
         for (Observer<LasersModel, ModelData> observer: observers) {
             observer.update(this, data);
         }
     }
+    /**
+     * Start a batch of changes.  Until it is committed the observers are
+     * not told about anything, and then they get a single BATCH update for
+     * all of it.  Batches can be nested, only the outermost commit sends
+     * the update.
+     */
+    public void beginBatch() {
+        if (batches++ == 0) {
+            pending = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Commit a batch of changes, telling the observers about them if it was
+     * the outermost batch and anything happened during it.
+     */
+    public void commitBatch() {
+        if (batches == 0) {
+            throw new IllegalStateException("no batch to commit");
+        }
+        if (--batches == 0) {
+            List<ModelData> events = pending;
+            pending = null;
+            if (!events.isEmpty()) {
+                ModelData batch = new ModelData(events);
+                batch.setChangedCells(takeChanges());
+                send(batch);
+            }
+        }
+    }
+
+    /**
+     * @return: true if a batch is in progress
+     */
+    public boolean isBatching() {
+        return batches > 0;
+    }
+
     /**
      * Displaying the help message
      *
@@ -99,23 +201,18 @@ public class LasersModel {
         notifyObservers(new ModelData(ModelData.Action.HELP,str.toString(),-19,-19));
     }
     /**
-     * Create the board.
+     * Create the board from the rows of the file.
+     *
+     * @throws SafeFormatException if a row of the file is not a row of the safe
      */
     public void createBoard() {
-        StringBuilder boardReader = new StringBuilder();
-        for (int i = 0; i < ROW_DIM; i++) {
-            String line = scanner.nextLine();
-            boardReader.append(line);
-            boardReader.append(" ");
+        if (parser == null) {
+            throw new IllegalStateException("the board was already created");
         }
-
-        String[] boardArray = boardReader.toString().split(" ");
-        int row = 0;
-        for (int i = 0; i < boardArray.length; i++) {
-            if (i % COLUMN_DIM == 0 && i != 0) {
-                row++;
-            }
-            board[row][i % COLUMN_DIM] = boardArray[i];
+        try (SafeParser rows = parser) {
+            rows.readBoard(board);
+        } finally {
+            parser = null;
         }
 
         // let the view know it can start displaying the board
@@ -137,7 +234,71 @@ public class LasersModel {
      * @param setter: board you want this board to be equal to
      */
     public void setBoard(String[][] setter){
+        for (int row = 0; row < ROW_DIM; row++) {
+            for (int col = 0; col < COLUMN_DIM; col++) {
+                if (board[row][col] == null || !board[row][col].equals(setter[row][col])) {
+                    markChanged(row, col, board[row][col]);
+                }
+            }
+        }
         board = setter;
+        coverage = null;
+    }
+
+    /**
+     * change the value of a tile, and remember it for the next update if
+     * it is a different value
+     * @param row: row of the tile
+     * @param col: column of the tile
+     * @param value: the new value
+     */
+    private void set(int row, int col, String value) {
+        if (!board[row][col].equals(value)) {
+            markChanged(row, col, board[row][col]);
+            board[row][col] = value;
+        }
+    }
+
+    /**
+     * remember that a tile changed, for the next update
+     * @param row: row of the tile
+     * @param col: column of the tile
+     * @param from: the value it had, only kept the first time it changes
+     */
+    private void markChanged(int row, int col, String from) {
+        if (changedMarks == null) {
+            changedMarks = new long[(ROW_DIM * COLUMN_DIM + 63) >>> 6];
+        }
+        int cell = row * COLUMN_DIM + col;
+        if ((changedMarks[cell >>> 6] & (1L << cell)) == 0) {
+            changedMarks[cell >>> 6] |= 1L << cell;
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, changedCount * 2);
+                changedFrom = Arrays.copyOf(changedFrom, changedCount * 2);
+            }
+            changedFrom[changedCount] = from;
+            changed[changedCount++] = cell;
+        }
+    }
+
+    /**
+     * the tiles changed since the last update, which are then forgotten.
+     * A tile that changed and then went back to its value, like the beams
+     * of a laser added and removed again in a batch, is left out.
+     * @return: the tiles, each as row * COLUMN_DIM + col
+     */
+    private int[] takeChanges() {
+        int count = 0;
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            changedMarks[cell >>> 6] = 0;
+            if (!board[cell / COLUMN_DIM][cell % COLUMN_DIM].equals(changedFrom[i])) {
+                changed[count++] = cell;
+            }
+            changedFrom[i] = null;
+        }
+        changedCount = 0;
+        return Arrays.copyOf(changed, count);
     }
 
     /**
@@ -174,44 +335,6 @@ public class LasersModel {
         return numbers;
     }
 
-    /**
-     * helper method for both the add and remove methods
-     *
-     * @param row: row to start changing tile values from
-     * @param col: column to start changing tile values from
-     * @param oldValue: value to change
-     * @param newValue: new value for the tile
-     */
-    public void tileChanger(int row, int col, String oldValue, String newValue) {
-        for (int c = col + 1; c < COLUMN_DIM; c++) {
-            if (board[row][c].equals(oldValue) || board[row][c].equals(newValue)) {
-                board[row][c] = newValue;
-            } else {
-                break;
-            }
-        }
-        for (int c = col - 1; c >= 0; c--) {
-            if (board[row][c].equals(oldValue) || board[row][c].equals(newValue)) {
-                board[row][c] = newValue;
-            } else {
-                break;
-            }
-        }
-        for (int r = row + 1; r < ROW_DIM; r++) {
-            if (board[r][col].equals(oldValue) || board[r][col].equals(newValue)) {
-                board[r][col] = newValue;
-            } else {
-                break;
-            }
-        }
-        for (int r = row - 1; r >= 0; r--) {
-            if (board[r][col].equals(oldValue) || board[r][col].equals(newValue)) {
-                board[r][col] = newValue;
-            } else {
-                break;
-            }
-        }
-    }
     /**
      * this method verifies if all tiles are covered
      * correctly on the safe board
@@ -350,8 +473,9 @@ public class LasersModel {
             notifyObservers(new ModelData(ModelData.Action.ADD,"Error adding laser at (" + row + ", " + col + ")",row,col));
         }
         else if (board[row][col].equals(".") || board[row][col].equals("*")) {
-            tileChanger(row, col, ".", "*");
-            board[row][col] = "L";
+            coverage();
+            cast(row, col, 1);
+            set(row, col, "L");
             notifyObservers(new ModelData(ModelData.Action.ADD,"Laser added at ("+row+", " +col+")",row,col));
         }
         else notifyObservers(new ModelData(ModelData.Action.ADD,"Error adding laser at (" + row + ", " + col + ")",row,col));
@@ -364,20 +488,74 @@ public class LasersModel {
      * @param filename name of the file being read to create the safe
      */
     public void solve(String filename){
-        Backtracker bt = new Backtracker(false);
-        Configuration init = null;
-
+        String[][] solution = null;
         try {
-            init = new SafeConfig(filename);
+            solution = getSolution(filename);
         } catch (FileNotFoundException ex) {
             ex.printStackTrace();
         }
-        Optional<Configuration> sol = bt.solve(init);
-        SafeConfig config = (SafeConfig) sol.get();
-        setBoard(config.getBoard());
+        showSolution(filename, solution);
+    }
+
+    /**
+     * Put a solution of the safe on the board.  Solving can take long, so
+     * views that don't want to wait for it find the solution with
+     * getSolution on another thread and give it to this method.
+     *
+     * @param filename name of the file
+     * @param solution the solution from getSolution, or null if there is none
+     */
+    public void showSolution(String filename, String[][] solution) {
+        if (solution == null) {
+            notifyObservers(new ModelData(ModelData.Action.SOLVE, filename + " has no solution"));
+            return;
+        }
+        setBoard(copyOf(solution));
         notifyObservers(new ModelData(ModelData.Action.SOLVE, filename + " solved!"));
     }
 
+    /**
+     * The solution of a safe file.  Each safe is solved once and the
+     * solution is kept until the file changes, or until enough other safes
+     * were solved to push it out of the cache.
+     *
+     * @param filename name of the file
+     * @return the solved board, which must not be changed, or null if the
+     * safe has no solution
+     * @throws FileNotFoundException if file not found
+     */
+    public static String[][] getSolution(String filename) throws FileNotFoundException {
+        return getSolution(filename, new ParallelBacktracker());
+    }
+
+    /**
+     * The solution of a safe file, found with the given backtracker if it
+     * is not cached.  A solve that was cancelled is not cached.
+     *
+     * @param filename name of the file
+     * @param bt the backtracker to solve with
+     * @return the solved board, which must not be changed, or null if the
+     * safe has no solution or bt was cancelled
+     * @throws FileNotFoundException if file not found
+     */
+    public static String[][] getSolution(String filename, Backtracker bt) throws FileNotFoundException {
+        File file = new File(filename);
+        String key = file.getAbsolutePath();
+        long modified = file.lastModified();
+        long length = file.length();
+        CachedSolution cached = solutions.get(key);
+        if (cached == null || cached.modified != modified || cached.length != length) {
+            Optional<Configuration> sol = bt.solve(new SafeConfig(filename));
+            if (bt.isCancelled()) {
+                return null;
+            }
+            cached = new CachedSolution(modified, length,
+                    sol.isPresent() ? ((SafeConfig) sol.get()).getBoard() : null);
+            solutions.put(key, cached);
+        }
+        return cached.board;
+    }
+
     /**
      * method for removing a laser to the board
      *
@@ -389,25 +567,68 @@ public class LasersModel {
             notifyObservers(new ModelData(ModelData.Action.REMOVE,"Error removing laser at (" + row + ", " + col + ")",row,col));
         }
         else if (board[row][col].equals("L")) {
-            tileChanger(row, col, "*", ".");
-            board[row][col] = ".";
-            refreshBoard();
+            int[] counts = coverage();
+            cast(row, col, -1);
+            set(row, col, counts[row * COLUMN_DIM + col] > 0 ? "*" : ".");
             notifyObservers(new ModelData(ModelData.Action.REMOVE,"Laser removed at (" + row + ", " + col + ")",row,col));
         }
         else notifyObservers(new ModelData(ModelData.Action.REMOVE,"Error removing laser at (" + row + ", " + col + ")",row,col));
     }
 
     /**
-     * method for activating all lasers again when a laser is removed
+     * method for activating all lasers again, counting their beams from scratch
      */
     public void refreshBoard() {
-        for (int row = 0; row < ROW_DIM; row++) {
-            for (int col = 0; col < COLUMN_DIM; col++) {
-                if (board[row][col].equals("L")) {
-                    tileChanger(row,col,".","*");
+        coverage = null;
+        coverage();
+    }
+
+    /**
+     * the coverage of every cell, counted from the lasers on the board if
+     * it was not counted yet
+     * @return: the coverage, as row * COLUMN_DIM + col
+     */
+    private int[] coverage() {
+        if (coverage == null) {
+            coverage = new int[ROW_DIM * COLUMN_DIM];
+            for (int row = 0; row < ROW_DIM; row++) {
+                for (int col = 0; col < COLUMN_DIM; col++) {
+                    if (board[row][col].equals("L")) {
+                        cast(row, col, 1);
+                    }
                 }
             }
         }
+        return coverage;
+    }
+
+    /**
+     * add the beams of a laser to the coverage of the tiles they reach, or
+     * take them away, lighting the tiles that get covered and turning off
+     * the ones that are not anymore.  The beams stop at pillars.
+     * @param row: row of the laser
+     * @param col: column of the laser
+     * @param delta: 1 to add the beams, -1 to take them away
+     */
+    private void cast(int row, int col, int delta) {
+        for (int[] direction : DIRECTIONS) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (r >= 0 && r < ROW_DIM && c >= 0 && c < COLUMN_DIM) {
+                String value = board[r][c];
+                boolean laser = value.equals("L");
+                if (!laser && !value.equals(".") && !value.equals("*")) {
+                    break;
+                }
+                int cell = r * COLUMN_DIM + c;
+                coverage[cell] += delta;
+                if (!laser) {
+                    set(r, c, coverage[cell] > 0 ? "*" : ".");
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
     }
 
     /**
@@ -446,31 +667,107 @@ public class LasersModel {
     }
 
     /**
-     * It goes through all configurations that are returned by SafeSolverConfig
-     * and sets the current model equal to the model of the next config where the
-     * number of lasers is one more than that of the current configuration
+     * Adds a laser of the solution of the safe that is not on the board
+     * yet.  The hint comes from the cached solution when every laser on the
+     * board is part of it; otherwise the lasers on the board may still lead
+     * to another solution, so the safe is solved from the board as it is.
      *
      * @param filename name of the file
-     * @return ext config where the number of lasers is one more
-     * than that of the current configuration
+     * @return true if a laser was added
      * @throws FileNotFoundException if file not found
      */
-    public Configuration hint(String filename) throws FileNotFoundException {
-        SafeConfig init = new SafeConfig(filename);
-        Backtracker bt = new Backtracker(false);
-        init.setModel(this);
-        int num = init.getNumLasers();
-        List<Configuration> path = bt.solveWithPath(init);
-        if (path != null) {
-            for (Configuration config : path) {
-                if (((SafeConfig) config).getNumLasers() == num + 1) {
+    public boolean hint(String filename) throws FileNotFoundException {
+        String[][] solution = getSolution(filename);
+        if (solution != null && !isPartOf(solution)) {
+            solution = solveFromBoard(filename, new IterativeBacktracker(false));
+        }
+        return showHint(solution);
+    }
+
+    /**
+     * The solution a hint is taken from: the cached solution when every
+     * laser on the board is part of it, otherwise a solution from the board
+     * as it is.  It only reads the board, so it can run on another thread
+     * as long as the board doesn't change meanwhile.
+     *
+     * @param filename name of the file
+     * @param bt the backtracker to solve with
+     * @return the solution, or null if there is none or bt was cancelled
+     * @throws FileNotFoundException if file not found
+     */
+    public String[][] findHint(String filename, Backtracker bt) throws FileNotFoundException {
+        String[][] solution = getSolution(filename, bt);
+        if (solution != null && !isPartOf(solution)) {
+            solution = solveFromBoard(filename, bt);
+        }
+        return solution;
+    }
+
+    /**
+     * Add a laser of a solution that is not on the board yet.
+     *
+     * @param solution the solution from findHint, or null if there is none
+     * @return true if a laser was added
+     */
+    public boolean showHint(String[][] solution) {
+        if (solution == null) {
+            notifyObservers(new ModelData(ModelData.Action.HINT, "there is no solution"));
+            return false;
+        }
+        for (int row = 0; row < ROW_DIM; row++) {
+            for (int col = 0; col < COLUMN_DIM; col++) {
+                if (solution[row][col].equals("L") && !board[row][col].equals("L")) {
+                    add(row, col);
                     notifyObservers(new ModelData(ModelData.Action.HINT, "The next laser has been added as hint."));
-                    return config;
+                    return true;
+                }
+            }
+        }
+        notifyObservers(new ModelData(ModelData.Action.HINT, "every laser is already on the board"));
+        return false;
+    }
+
+    /**
+     * helper method for hint that checks the lasers on the board against a solution
+     * @param solution: a solved board
+     * @return: true if every laser on the board is also in the solution
+     */
+    private boolean isPartOf(String[][] solution) {
+        for (int row = 0; row < ROW_DIM; row++) {
+            for (int col = 0; col < COLUMN_DIM; col++) {
+                if (board[row][col].equals("L") && !solution[row][col].equals("L")) {
+                    return false;
                 }
             }
         }
-        notifyObservers(new ModelData(ModelData.Action.HINT, "there is no solution"));
-        return null;
+        return true;
+    }
+
+    /**
+     * helper method for hint that solves the safe from the lasers on the board
+     * @param filename: name of the file
+     * @param bt: the backtracker to solve with
+     * @return: the solved board, or null if there is no solution from the board
+     * @throws FileNotFoundException if file not found
+     */
+    private String[][] solveFromBoard(String filename, Backtracker bt) throws FileNotFoundException {
+        SafeConfig init = new SafeConfig(filename);
+        init.setModel(this);
+        Optional<Configuration> sol = bt.solve(init);
+        return sol.isPresent() ? ((SafeConfig) sol.get()).getBoard() : null;
+    }
+
+    /**
+     * a copy of a board that can be changed
+     * @param board: the board
+     * @return: the copy
+     */
+    private static String[][] copyOf(String[][] board) {
+        String[][] copy = new String[board.length][];
+        for (int row = 0; row < board.length; row++) {
+            copy[row] = board[row].clone();
+        }
+        return copy;
     }
 
 }
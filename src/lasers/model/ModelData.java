@@ -1,5 +1,8 @@
 package lasers.model;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Use this class to customize the data you wish to send from the model
  * to the view when the model changes state.
@@ -20,7 +23,8 @@ public class ModelData {
         DISPLAY,
         CREATEBOARD,
         SOLVE,
-        HINT
+        HINT,
+        BATCH
     }
 
     /** type of the tile */
@@ -28,7 +32,11 @@ public class ModelData {
     private String message;
     private int row;
     private int col;
-
+    /** the updates a BATCH stands for, in the order they happened */
+    private List<ModelData> events = Collections.emptyList();
+    /** cells whose value changed, each as row * columns + column */
+    private int[] changed = NO_CELLS;
+    private static final int[] NO_CELLS = new int[0];
 
     /**
      * Create a new update card.
@@ -53,6 +61,20 @@ public class ModelData {
         this.row = row;
         this.col = col;
     }
+
+    /**
+     * constructor for the single update sent for a batch of changes, whose
+     * message is the one of the last update
+     * @param events: the updates held back during the batch, at least one
+     */
+    public ModelData(List<ModelData> events){
+        this.action = Action.BATCH;
+        this.message = events.get(events.size() - 1).getMessage();
+        this.row = -1;
+        this.col = -1;
+        this.events = Collections.unmodifiableList(events);
+    }
+
     /**
      * Get the row.
      *
@@ -77,4 +99,26 @@ public class ModelData {
      * @return enum tile
      */
     public Action getAction(){ return this.action; }
+
+    /**
+     * getter for the updates a BATCH stands for
+     * @return: the updates in the order they happened, empty unless the
+     * action is BATCH
+     */
+    public List<ModelData> getEvents(){ return this.events; }
+
+    /**
+     * getter for the cells whose value changed with this update, which are
+     * the only ones a view has to draw again.  The updates held back by a
+     * batch have none, the BATCH update has every cell the batch changed
+     * @return: the cells, each as row * columns + column, which must not
+     * be changed
+     */
+    public int[] getChangedCells(){ return this.changed; }
+
+    /**
+     * setter the model uses for the cells that changed with this update
+     * @param changed: the cells, each as row * columns + column
+     */
+    void setChangedCells(int[] changed){ this.changed = changed; }
 }
@@ -0,0 +1,285 @@
+package lasers.model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Many safes in one binary file, read through a memory map so any safe
+ * can be looked at without reading or copying the others.
+ *
+ * The file starts with a header of three ints: the magic number, the
+ * version and the number of safes.  Then comes the index, the offset in
+ * the file of every safe as a long, and then the safes themselves: the
+ * rows and columns as two unsigned shorts followed by the cells, row
+ * by row, as CellCode codes packed two to a byte, the first one in the
+ * high half.  Everything is big endian.  A corpus is mapped in a single
+ * piece, so it can't be larger than 2 GB.  The index may have room for
+ * more safes than the count, which a Writer leaves when it is given
+ * fewer safes than it made room for.
+ *
+ * Opening a corpus only reads the header, so it takes the same time
+ * however many safes there are; a safe is checked against the size of
+ * the file when it is read.  Reading only uses absolute gets on the map,
+ * so a corpus can be read by several threads at once.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SafeCorpus {
+    /** "LSRC" */
+    private static final int MAGIC = 0x4C535243;
+    private static final int VERSION = 1;
+    /** bytes of the header */
+    private static final int HEADER = 12;
+    /** bytes of the rows and columns of a safe */
+    private static final int DIMENSIONS = 4;
+
+    /** the whole file */
+    private final ByteBuffer map;
+    /** name of the file, for the error messages */
+    private final String name;
+    /** number of safes */
+    private final int size;
+
+    /**
+     * Open a corpus.
+     *
+     * @param file the corpus file
+     * @throws IOException if it can't be read or is not a corpus
+     */
+    public SafeCorpus(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to map");
+            }
+            // the map stays valid once the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        name = file.toString();
+        if (map.capacity() < HEADER || map.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a safe corpus");
+        }
+        if (map.getInt(4) != VERSION) {
+            throw new IOException(file + " has corpus version " + map.getInt(4));
+        }
+        size = map.getInt(8);
+        if (size < 0 || HEADER + (long) size * Long.BYTES > map.capacity()) {
+            throw new IOException(file + " is cut short");
+        }
+    }
+
+    /**
+     * @return: number of safes in the corpus
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param n: index of a safe
+     * @return: number of rows of the safe
+     */
+    public int getRows(int n) {
+        return rows(offset(n));
+    }
+
+    /**
+     * @param n: index of a safe
+     * @return: number of columns of the safe
+     */
+    public int getCols(int n) {
+        return cols(offset(n));
+    }
+
+    /**
+     * @param n: index of a safe
+     * @param row: row of a cell
+     * @param col: column of the cell
+     * @return: the CellCode code of the cell
+     */
+    public int getCode(int n, int row, int col) {
+        int offset = offset(n);
+        int rows = rows(offset);
+        int cols = cols(offset);
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException("no cell " + row + " " + col + " in safe " + n);
+        }
+        int cell = row * cols + col;
+        int packed = map.get(offset + DIMENSIONS + (cell >> 1));
+        return (cell & 1) == 0 ? (packed >> 4) & 0xF : packed & 0xF;
+    }
+
+    /**
+     * @param n: index of a safe
+     * @param row: row of a cell
+     * @param col: column of the cell
+     * @return: the cell, as the model has it
+     */
+    public String getCell(int n, int row, int col) {
+        return CellCode.decode(getCode(n, row, col));
+    }
+
+    /**
+     * @param n: index of a safe
+     * @return: the safe as a board for the model
+     */
+    public String[][] getBoard(int n) {
+        int offset = offset(n);
+        int rows = rows(offset);
+        int cols = cols(offset);
+        String[][] board = new String[rows][cols];
+        for (int cell = 0; cell < rows * cols; cell++) {
+            int packed = map.get(offset + DIMENSIONS + (cell >> 1));
+            int code = (cell & 1) == 0 ? (packed >> 4) & 0xF : packed & 0xF;
+            board[cell / cols][cell % cols] = CellCode.decode(code);
+        }
+        return board;
+    }
+
+    /**
+     * Writes a corpus one safe at a time, so the safes don't have to be in
+     * memory together.  The room for the index is left after the header,
+     * the safes are written after it as they are added, and the index and
+     * the count are filled in by close.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        /** offset of every safe added so far */
+        private final long[] offsets;
+        private int count;
+        /** offset of the next safe */
+        private long offset;
+
+        /**
+         * Create a corpus file, replacing it if it is there.
+         *
+         * @param file the corpus file
+         * @param capacity the most safes that will be added
+         * @throws IOException if the file can't be written
+         */
+        public Writer(Path file, int capacity) throws IOException {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("negative capacity: " + capacity);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            offsets = new long[capacity];
+            offset = HEADER + (long) capacity * Long.BYTES;
+            channel.position(offset);
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+
+        /**
+         * Add a safe after the ones added so far.  A safe that can't be
+         * stored leaves the file as it was.
+         *
+         * @param safe the board of the safe
+         * @throws IOException if the file can't be written
+         * @throws IllegalArgumentException if a cell has no code or the
+         * safe is too large
+         * @throws IllegalStateException if the capacity is reached
+         */
+        public void add(String[][] safe) throws IOException {
+            if (count == offsets.length) {
+                throw new IllegalStateException("the corpus has room for " + offsets.length + " safes");
+            }
+            int rows = safe.length;
+            int cols = rows == 0 ? 0 : safe[0].length;
+            if (rows > 0xFFFF || cols > 0xFFFF) {
+                throw new IllegalArgumentException("safe too large: " + rows + "x" + cols);
+            }
+            byte[] cells = new byte[(int) packedLength(rows, cols)];
+            for (int cell = 0; cell < rows * cols; cell++) {
+                int code = CellCode.encode(safe[cell / cols][cell % cols]);
+                cells[cell >> 1] |= (cell & 1) == 0 ? code << 4 : code;
+            }
+            out.writeShort(rows);
+            out.writeShort(cols);
+            out.write(cells);
+            offsets[count++] = offset;
+            offset += DIMENSIONS + cells.length;
+        }
+
+        /**
+         * @return: number of safes added so far
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Write the header and the index, and close the file.
+         *
+         * @throws IOException if the file can't be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                out.flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER + count * Long.BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(count);
+                for (int n = 0; n < count; n++) {
+                    header.putLong(offsets[n]);
+                }
+                header.flip();
+                long position = 0;
+                while (header.hasRemaining()) {
+                    position += channel.write(header, position);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * @param n: index of a safe
+     * @return: offset of the safe in the file
+     * @throws UncheckedIOException if the safe is not all in the file
+     */
+    private int offset(int n) {
+        if (n < 0 || n >= size) {
+            throw new IndexOutOfBoundsException("no safe " + n + " in a corpus of " + size);
+        }
+        long offset = map.getLong(HEADER + n * Long.BYTES);
+        if (offset < 0 || offset + DIMENSIONS > map.capacity()
+                || offset + DIMENSIONS + packedLength(rows(offset), cols(offset)) > map.capacity()) {
+            throw new UncheckedIOException(new IOException(name + " is cut short at safe " + n));
+        }
+        return (int) offset;
+    }
+
+    /**
+     * @param offset: offset of a safe
+     * @return: its number of rows
+     */
+    private int rows(long offset) {
+        return map.getChar((int) offset);
+    }
+
+    /**
+     * @param offset: offset of a safe
+     * @return: its number of columns
+     */
+    private int cols(long offset) {
+        return map.getChar((int) offset + 2);
+    }
+
+    /**
+     * @param rows: rows of a safe
+     * @param cols: columns of a safe
+     * @return: bytes its cells take
+     */
+    private static long packedLength(int rows, int cols) {
+        return ((long) rows * cols + 1) / 2;
+    }
+}
@@ -0,0 +1,30 @@
+package lasers.model;
+
+/**
+ * Thrown when a safe file is not in the format of a safe, with the line
+ * the problem is on.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SafeFormatException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    private final int line;
+
+    /**
+     * @param source: name of the file, or of whatever the safe was read from
+     * @param line: number of the line, starting at 1
+     * @param message: what is wrong with the line
+     */
+    public SafeFormatException(String source, int line, String message) {
+        super(source + ":" + line + ": " + message);
+        this.line = line;
+    }
+
+    /**
+     * @return: number of the line the problem is on, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+}
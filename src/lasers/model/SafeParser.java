@@ -0,0 +1,238 @@
+package lasers.model;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads a safe file a buffer of bytes at a time.  The first line has the
+ * number of rows and columns, and every row of the safe is a line of
+ * cells separated by any number of spaces or tabs; blank lines are
+ * skipped and nothing after the last row is read.  Every cell is turned
+ * into its CellCode as it is read and stored as the shared string of
+ * that code, so reading a safe takes no memory besides the board and
+ * the buffer, however large the safe is.  A line that is not what it
+ * should be throws a SafeFormatException with its line number.
+ *
+ * @author Vedant Juneja
+ * @author Julio Cuello
+ */
+public class SafeParser implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    /** marks the end of the file */
+    private static final int END = -1;
+
+    private final InputStream in;
+    /** name of what the safe is read from, for the error messages */
+    private final String source;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /** number of the line being read, starting at 1 */
+    private int line = 1;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Open a safe file and read its dimensions.
+     *
+     * @param filename: the safe file
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws SafeFormatException if the first line is not the dimensions
+     */
+    public SafeParser(String filename) throws FileNotFoundException {
+        this(new FileInputStream(filename), filename);
+    }
+
+    /**
+     * Read the dimensions of a safe from a stream.
+     *
+     * @param in: the stream, closed by close
+     * @param source: name of the stream for the error messages
+     * @throws SafeFormatException if the first line is not the dimensions
+     */
+    public SafeParser(InputStream in, String source) {
+        this.in = in;
+        this.source = source;
+        try {
+            skipBlankLines();
+            rows = readNumber("the number of rows");
+            cols = readNumber("the number of columns");
+            if (skipSpaces() != '\n' && peek() != END) {
+                throw error("expected only the number of rows and columns");
+            }
+            next();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return: number of rows of the safe
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return: number of columns of the safe
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Read the rows of the safe.
+     *
+     * @return: the board, with the strings the model uses for the cells
+     * @throws SafeFormatException if a row is missing or malformed
+     */
+    public String[][] readBoard() {
+        String[][] board = new String[rows][cols];
+        readBoard(board);
+        return board;
+    }
+
+    /**
+     * Read the rows of the safe into a board.
+     *
+     * @param board: a board of the dimensions of the safe
+     * @throws SafeFormatException if a row is missing or malformed
+     */
+    public void readBoard(String[][] board) {
+        for (int row = 0; row < rows; row++) {
+            skipBlankLines();
+            if (peek() == END) {
+                throw error("expected " + rows + " rows, the file ends after " + row);
+            }
+            int col = 0;
+            int c = skipSpaces();
+            while (c != '\n' && c != END) {
+                if (col == cols) {
+                    throw error("expected " + cols + " cells, found more");
+                }
+                int code;
+                try {
+                    code = CellCode.encode((char) c);
+                } catch (IllegalArgumentException e) {
+                    throw error("'" + (char) c + "' is not a cell");
+                }
+                next();
+                if (!isSpace(peek()) && peek() != '\n' && peek() != END) {
+                    throw error("cells are single characters separated by spaces");
+                }
+                board[row][col++] = CellCode.decode(code);
+                c = skipSpaces();
+            }
+            if (col < cols) {
+                throw error("expected " + cols + " cells, found " + col);
+            }
+            next();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * read a positive number and the spaces before it
+     * @param what: what the number is, for the error message
+     * @return: the number
+     */
+    private int readNumber(String what) {
+        int c = skipSpaces();
+        if (c < '0' || c > '9') {
+            throw error("expected " + what);
+        }
+        long number = 0;
+        while (c >= '0' && c <= '9') {
+            number = number * 10 + (c - '0');
+            if (number > Integer.MAX_VALUE) {
+                throw error(what + " is too large");
+            }
+            next();
+            c = peek();
+        }
+        if (number == 0) {
+            throw error(what + " must be positive");
+        }
+        return (int) number;
+    }
+
+    /**
+     * skip the lines with nothing but spaces
+     */
+    private void skipBlankLines() {
+        while (skipSpaces() == '\n') {
+            next();
+        }
+    }
+
+    /**
+     * skip spaces, tabs and carriage returns
+     * @return: the byte after them, without reading it
+     */
+    private int skipSpaces() {
+        while (isSpace(peek())) {
+            next();
+        }
+        return peek();
+    }
+
+    /**
+     * @param c: a byte
+     * @return: true if it separates cells
+     */
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * @return: the next byte without reading it, or END
+     */
+    private int peek() {
+        if (position == limit) {
+            try {
+                limit = in.read(buffer, 0, BUFFER_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return END;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    /**
+     * read the next byte, if there is one
+     */
+    private void next() {
+        if (peek() != END) {
+            if (buffer[position] == '\n') {
+                line++;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * @param message: what is wrong
+     * @return: the exception for the line being read
+     */
+    private SafeFormatException error(String message) {
+        return new SafeFormatException(source, line, message);
+    }
+}
@@ -42,6 +42,16 @@ public class ControllerPTUI  {
      * @param inputFile The name of the input command file, if specified
      */
     public void run(String inputFile) throws FileNotFoundException {
+        run(inputFile, false);
+    }
+
+    /**
+     * Run the main loop.  This is the entry point for the controller
+     * @param inputFile The name of the input command file, if specified
+     * @param replay true to show only the state the input file leaves the
+     *               safe in, instead of the safe after every command
+     */
+    public void run(String inputFile, boolean replay) throws FileNotFoundException {
         Scanner scanner;
         boolean readingUserInput;
         if (inputFile == null){
@@ -51,12 +61,18 @@ public class ControllerPTUI  {
         else {
             scanner = new Scanner(new File(inputFile));
             readingUserInput = false;
+            if (replay) {
+                model.beginBatch();
+            }
         }
         while (true){
             if(readingUserInput){
                 System.out.print("> ");
             }
             if (!scanner.hasNextLine()){
+                if (model.isBatching()) {
+                    model.commitBatch();
+                }
                 scanner = new Scanner(System.in);
                 readingUserInput = true;
                 continue;
@@ -71,6 +87,9 @@ public class ControllerPTUI  {
             String command = input[0];
             switch (command.charAt(0)) {
                 case 'q':
+                    if (model.isBatching()) {
+                        model.commitBatch();
+                    }
                     model.quit();
                 case 'a':
                     if (checkInputSize(input)) {
@@ -56,6 +56,11 @@ public class LasersPTUI implements Observer<LasersModel, ModelData> {
         else if(data.getAction().equals(ModelData.Action.QUIT)){
             System.exit(0);
         }
+        else if(data.getAction().equals(ModelData.Action.BATCH)){
+            // only the state the batch ended in is shown
+            System.out.println(data.getEvents().size() + " updates, the last one: " + data.getMessage());
+            System.out.println(model);
+        }
         else{
             System.out.println(data.getMessage());
             System.out.println(model);